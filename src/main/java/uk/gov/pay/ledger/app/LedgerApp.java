@@ -21,7 +21,11 @@ import uk.gov.pay.ledger.healthcheck.DependentResourceWaitCommand;
 import uk.gov.pay.ledger.healthcheck.HealthCheckResource;
 import uk.gov.pay.ledger.healthcheck.SQSHealthCheck;
 import uk.gov.pay.ledger.payout.resource.PayoutResource;
+import uk.gov.pay.ledger.quarantine.resource.QuarantineResource;
 import uk.gov.pay.ledger.queue.managed.QueueMessageReceiver;
+import uk.gov.pay.ledger.queue.sqs.SqsMessageVisibilityHeartbeat;
+import uk.gov.pay.ledger.referencedata.ReferenceDataCache;
+import uk.gov.pay.ledger.reprojection.ReprojectEventsCommand;
 import uk.gov.pay.ledger.report.resource.PerformanceReportResource;
 import uk.gov.pay.ledger.report.resource.ReportResource;
 import uk.gov.pay.ledger.transaction.resource.TransactionResource;
@@ -54,6 +58,7 @@ public class LedgerApp extends Application<LedgerConfig> {
 
         bootstrap.addBundle(new JdbiExceptionsBundle());
         bootstrap.addCommand(new DependentResourceWaitCommand());
+        bootstrap.addCommand(new ReprojectEventsCommand());
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(LogstashConsoleAppenderFactory.class);
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(GovUkPayDropwizardRequestJsonLogLayoutFactory.class);
     }
@@ -78,13 +83,18 @@ public class LedgerApp extends Application<LedgerConfig> {
 
         environment.jersey().register(new BadRequestExceptionMapper());
         environment.jersey().register(new JerseyViolationExceptionMapper());
-        environment.healthChecks().register("sqsQueue", injector.getInstance(SQSHealthCheck.class));
+        if (!config.getLocalQueueConfig().isEnabled()) {
+            environment.healthChecks().register("sqsQueue", injector.getInstance(SQSHealthCheck.class));
+        }
+        environment.lifecycle().manage(injector.getInstance(ReferenceDataCache.class));
 
         if(config.getQueueMessageReceiverConfig().isBackgroundProcessingEnabled()) {
+            environment.lifecycle().manage(injector.getInstance(SqsMessageVisibilityHeartbeat.class));
             environment.lifecycle().manage(injector.getInstance(QueueMessageReceiver.class));
         }
 
         environment.jersey().register(injector.getInstance(PayoutResource.class));
+        environment.jersey().register(injector.getInstance(QuarantineResource.class));
     }
 
 }
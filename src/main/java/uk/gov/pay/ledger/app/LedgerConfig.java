@@ -3,6 +3,7 @@ package uk.gov.pay.ledger.app;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.db.DataSourceFactory;
+import uk.gov.pay.ledger.app.config.LocalQueueConfig;
 import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
 import uk.gov.pay.ledger.app.config.ReportingConfig;
 import uk.gov.pay.ledger.app.config.SqsConfig;
@@ -33,6 +34,10 @@ public class LedgerConfig extends Configuration {
     @JsonProperty("queueMessageReceiverConfig")
     private QueueMessageReceiverConfig queueMessageReceiverConfig;
 
+    @Valid
+    @JsonProperty("localQueueConfig")
+    private LocalQueueConfig localQueueConfig = new LocalQueueConfig();
+
     @NotNull
     @JsonProperty("reportingConfig")
     private ReportingConfig reportingConfig;
@@ -45,6 +50,10 @@ public class LedgerConfig extends Configuration {
         return queueMessageReceiverConfig;
     }
 
+    public LocalQueueConfig getLocalQueueConfig() {
+        return localQueueConfig;
+    }
+
     public ReportingConfig getReportingConfig() {
         return reportingConfig;
     }
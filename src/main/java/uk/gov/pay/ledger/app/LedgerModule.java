@@ -5,18 +5,28 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import io.dropwizard.setup.Environment;
 import org.jdbi.v3.core.Jdbi;
 import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.dao.ResourceDigestDao;
 import uk.gov.pay.ledger.event.dao.ResourceTypeDao;
 import uk.gov.pay.ledger.metadatakey.dao.MetadataKeyDao;
 import uk.gov.pay.ledger.payout.dao.PayoutDao;
+import uk.gov.pay.ledger.quarantine.dao.QuarantineDao;
+import uk.gov.pay.ledger.queue.IngestUnitOfWork;
+import uk.gov.pay.ledger.queue.QueueService;
+import uk.gov.pay.ledger.queue.local.LocalQueueService;
+import uk.gov.pay.ledger.queue.sqs.SqsQueueService;
+import uk.gov.pay.ledger.referencedata.ReferenceDataCache;
 import uk.gov.pay.ledger.report.dao.PerformanceReportDao;
 import uk.gov.pay.ledger.report.dao.ReportDao;
+import uk.gov.pay.ledger.reprojection.dao.ReprojectionDao;
 import uk.gov.pay.ledger.transaction.dao.TransactionDao;
 import uk.gov.pay.ledger.transactionmetadata.dao.TransactionMetadataDao;
 
@@ -25,7 +35,7 @@ public class LedgerModule extends AbstractModule {
     private final Environment environment;
     private final Jdbi jdbi;
 
-    LedgerModule(
+    public LedgerModule(
             LedgerConfig config,
             final Environment environment,
             final Jdbi jdbi
@@ -50,12 +60,36 @@ public class LedgerModule extends AbstractModule {
         return objectMapper;
     }
 
+    @Provides
+    @Singleton
+    public MetricRegistry provideMetricRegistry() {
+        return environment.metrics();
+    }
+
+    @Provides
+    @Singleton
+    public IngestUnitOfWork provideIngestUnitOfWork() {
+        return new IngestUnitOfWork(jdbi, environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    public ReferenceDataCache provideReferenceDataCache(ResourceTypeDao resourceTypeDao, MetadataKeyDao metadataKeyDao) {
+        return new ReferenceDataCache(jdbi, resourceTypeDao, metadataKeyDao, environment.metrics());
+    }
+
     @Provides
     @Singleton
     public EventDao provideEventDao() {
         return jdbi.onDemand(EventDao.class);
     }
 
+    @Provides
+    @Singleton
+    public ResourceDigestDao provideResourceDigestDao() {
+        return new ResourceDigestDao(jdbi);
+    }
+
     @Provides
     @Singleton
     public ResourceTypeDao provideResourceTypeDao() {
@@ -98,6 +132,27 @@ public class LedgerModule extends AbstractModule {
         return new TransactionMetadataDao(jdbi);
     }
 
+    @Provides
+    @Singleton
+    public ReprojectionDao provideReprojectionDao() {
+        return new ReprojectionDao(jdbi);
+    }
+
+    @Provides
+    @Singleton
+    public QuarantineDao provideQuarantineDao() {
+        return new QuarantineDao(jdbi);
+    }
+
+    @Provides
+    @Singleton
+    public QueueService provideQueueService(Provider<SqsQueueService> sqsQueueService) {
+        if (configuration.getLocalQueueConfig().isEnabled()) {
+            return new LocalQueueService(configuration);
+        }
+        return sqsQueueService.get();
+    }
+
     @Provides
     public AmazonSQS sqsClient(LedgerConfig ledgerConfig) {
         AmazonSQSClientBuilder clientBuilder = AmazonSQSClientBuilder
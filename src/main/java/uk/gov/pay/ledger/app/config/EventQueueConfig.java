@@ -0,0 +1,50 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * An SQS queue that events are received from. Pollers choose between queues in proportion to their weights, and
+ * messages from a priority queue are handed to workers ahead of any others.
+ */
+public class EventQueueConfig extends Configuration {
+
+    @NotNull
+    private String name;
+
+    @NotNull
+    private String url;
+
+    @Min(1)
+    private int weight = 1;
+
+    private boolean priority;
+
+    public EventQueueConfig() {
+    }
+
+    public EventQueueConfig(String name, String url, int weight, boolean priority) {
+        this.name = name;
+        this.url = url;
+        this.weight = weight;
+        this.priority = priority;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public boolean isPriority() {
+        return priority;
+    }
+}
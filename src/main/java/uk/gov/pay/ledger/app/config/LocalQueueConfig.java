@@ -0,0 +1,30 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class LocalQueueConfig extends Configuration {
+
+    private boolean enabled;
+
+    private String messageFile;
+
+    private Map<String, String> additionalMessageFiles = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getMessageFile() {
+        return messageFile;
+    }
+
+    /**
+     * Message files for the additional event queues, keyed by queue name.
+     */
+    public Map<String, String> getAdditionalMessageFiles() {
+        return additionalMessageFiles;
+    }
+}
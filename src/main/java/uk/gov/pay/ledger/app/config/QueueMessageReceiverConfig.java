@@ -3,6 +3,7 @@ package uk.gov.pay.ledger.app.config;
 import io.dropwizard.Configuration;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class QueueMessageReceiverConfig extends Configuration {
@@ -18,10 +19,68 @@ public class QueueMessageReceiverConfig extends Configuration {
     @NotNull
     private int numberOfThreads;
 
+    @Valid
+    @Min(1)
+    private int numberOfWorkerThreads = 1;
+
+    @Valid
+    private boolean stripedProcessingEnabled;
+
+    @Valid
+    private boolean autoscalingEnabled;
+
+    @Valid
+    @Min(1)
+    private int minimumNumberOfThreads = 1;
+
+    @Valid
+    @Min(1)
+    private int minimumNumberOfWorkerThreads = 1;
+
+    @Valid
+    @Min(1)
+    private int autoscalingIntervalInMilliseconds = 10000;
+
+    @Valid
+    @Min(1)
+    private int autoscalingBacklogPerWorker = 100;
+
+    @Valid
+    @Min(1)
+    private int autoscalingMaximumIngestLagInSeconds = 60;
+
+    @Valid
+    @Min(1)
+    private int handOffQueueCapacity = 100;
+
+    @Valid
+    @Min(1)
+    private int handOffQueueHighWaterMark = 80;
+
     @Valid
     @NotNull
     private int messageRetryDelayInSeconds;
 
+    @Valid
+    @Min(0)
+    private int messageAcknowledgementMaxDelayInMilliseconds = 1000;
+
+    @Valid
+    @Min(1)
+    private int messageMaximumInFlightInSeconds = 900;
+
+    @Valid
+    @Min(0)
+    private int messageMaximumAttempts = 10;
+
+    @Valid
+    @Min(0)
+    private int drainTimeoutInMilliseconds = 20000;
+
+    @Valid
+    @Min(0)
+    private long processedEventKeysMaximumSize = 10000;
+
     public int getThreadDelayInMilliseconds() {
         return threadDelayInMilliseconds;
     }
@@ -30,9 +89,76 @@ public class QueueMessageReceiverConfig extends Configuration {
         return numberOfThreads;
     }
 
+    public int getNumberOfWorkerThreads() {
+        return numberOfWorkerThreads;
+    }
+
+    public boolean isStripedProcessingEnabled() {
+        return stripedProcessingEnabled;
+    }
+
+    public boolean isAutoscalingEnabled() {
+        return autoscalingEnabled;
+    }
+
+    public int getMinimumNumberOfThreads() {
+        return minimumNumberOfThreads;
+    }
+
+    public int getMinimumNumberOfWorkerThreads() {
+        return minimumNumberOfWorkerThreads;
+    }
+
+    public int getAutoscalingIntervalInMilliseconds() {
+        return autoscalingIntervalInMilliseconds;
+    }
+
+    public int getAutoscalingBacklogPerWorker() {
+        return autoscalingBacklogPerWorker;
+    }
+
+    public int getAutoscalingMaximumIngestLagInSeconds() {
+        return autoscalingMaximumIngestLagInSeconds;
+    }
+
+    public int getHandOffQueueCapacity() {
+        return handOffQueueCapacity;
+    }
+
+    public int getHandOffQueueHighWaterMark() {
+        return handOffQueueHighWaterMark;
+    }
+
     public int getMessageRetryDelayInSeconds() {
         return messageRetryDelayInSeconds;
     }
 
+    public int getMessageAcknowledgementMaxDelayInMilliseconds() {
+        return messageAcknowledgementMaxDelayInMilliseconds;
+    }
+
+    public int getMessageMaximumInFlightInSeconds() {
+        return messageMaximumInFlightInSeconds;
+    }
+
+    /**
+     * @return the number of failed attempts after which a message is quarantined, or 0 if messages are never quarantined
+     */
+    public int getMessageMaximumAttempts() {
+        return messageMaximumAttempts;
+    }
+
+    /**
+     * @return how long to wait on shutdown for workers to finish the messages they are processing, before any
+     * messages not yet processed are handed back to the queue
+     */
+    public int getDrainTimeoutInMilliseconds() {
+        return drainTimeoutInMilliseconds;
+    }
+
+    public long getProcessedEventKeysMaximumSize() {
+        return processedEventKeysMaximumSize;
+    }
+
     public boolean isBackgroundProcessingEnabled() { return backgroundProcessingEnabled; }
 }
@@ -2,14 +2,25 @@ package uk.gov.pay.ledger.app.config;
 
 import io.dropwizard.Configuration;
 
+import javax.validation.Valid;
 import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SqsConfig extends Configuration {
 
     @NotNull
     private String eventQueueUrl;
 
+    @Min(1)
+    private int eventQueueWeight = 1;
+
+    @Valid
+    @NotNull
+    private List<EventQueueConfig> additionalEventQueues = new ArrayList<>();
+
     @NotNull
     private String region;
     private String accessKey;
@@ -19,6 +30,8 @@ public class SqsConfig extends Configuration {
     private int messageMaximumWaitTimeInSeconds;
     @Max(10)
     private int messageMaximumBatchSize;
+    @Min(1)
+    private int messageVisibilityTimeoutInSeconds = 30;
 
 
     private boolean nonStandardServiceEndpoint;
@@ -28,6 +41,18 @@ public class SqsConfig extends Configuration {
         return eventQueueUrl;
     }
 
+    public int getEventQueueWeight() {
+        return eventQueueWeight;
+    }
+
+    /**
+     * Queues polled alongside the event queue, for example for backfills or replays that should not hold up the
+     * live events on the event queue.
+     */
+    public List<EventQueueConfig> getAdditionalEventQueues() {
+        return additionalEventQueues;
+    }
+
     public int getMessageMaximumBatchSize() {
         return messageMaximumBatchSize;
     }
@@ -36,6 +61,10 @@ public class SqsConfig extends Configuration {
         return messageMaximumWaitTimeInSeconds;
     }
 
+    public int getMessageVisibilityTimeoutInSeconds() {
+        return messageVisibilityTimeoutInSeconds;
+    }
+
     public String getSecretKey() {
         return secretKey;
     }
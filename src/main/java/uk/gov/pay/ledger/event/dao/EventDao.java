@@ -6,6 +6,7 @@ import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
@@ -37,20 +38,24 @@ public interface EventDao {
     @GetGeneratedKeys
     Long insert(@BindBean Event event, @Bind("resourceTypeId") int resourceTypeId);
 
-    @SqlUpdate("INSERT INTO event(sqs_message_id, resource_type_id, resource_external_id, parent_resource_external_id, " +
+    String INSERT_IF_DOES_NOT_EXIST = "INSERT INTO event(sqs_message_id, resource_type_id, resource_external_id, parent_resource_external_id, " +
             "event_date, event_type, event_data) " +
-            "SELECT :sqsMessageId, :resourceTypeId, :resourceExternalId, :parentResourceExternalId, " +
-            "       :eventDate, :eventType, CAST(:eventData as jsonb) " +
-            "WHERE NOT EXISTS ( " +
-            "    SELECT 1 " +
-            "    FROM event " +
-            "    WHERE resource_type_id = :resourceTypeId AND " +
-            "          resource_external_id = :resourceExternalId AND  " +
-            "          event_date = :eventDate AND   " +
-            "          event_type = :eventType) ")
+            "VALUES (:sqsMessageId, :resourceTypeId, :resourceExternalId, :parentResourceExternalId, " +
+            "       :eventDate, :eventType, CAST(:eventData as jsonb)) " +
+            "ON CONFLICT (resource_external_id, resource_type_id, event_date, event_type) DO NOTHING";
+
+    @SqlUpdate(INSERT_IF_DOES_NOT_EXIST)
     @GetGeneratedKeys
     Optional<Long> insertIfDoesNotExist(@BindBean Event event, @Bind("resourceTypeId") int resourceTypeId);
 
+    /**
+     * Inserts every event as a single JDBC batch. The returned array holds the insert count for each event in the
+     * order given: 1 when the event was inserted and 0 when an identical event already exists (including an earlier
+     * event in the same batch).
+     */
+    @SqlBatch(INSERT_IF_DOES_NOT_EXIST)
+    int[] insertAllIfDoesNotExist(@BindBean List<Event> events, @Bind("resourceTypeId") List<Integer> resourceTypeIds);
+
     @Transaction
     default Long insertEventWithResourceTypeId(Event event) {
         int resourceTypeId = getResourceTypeDao().getResourceTypeIdByName(event.getResourceType().name());
@@ -0,0 +1,128 @@
+package uk.gov.pay.ledger.event.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import org.jdbi.v3.core.Jdbi;
+import uk.gov.pay.ledger.event.dao.mapper.ResourceDigestMapper;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.SalientEventType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Persisted snapshots of the digest of each resource's events, kept up to date in the same transaction as the events
+ * are inserted, so that a digest can be read as a single row instead of being rebuilt from every event.
+ */
+public class ResourceDigestDao {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String INSERT_PLACEHOLDER = "INSERT INTO resource_digest (resource_external_id) " +
+            "VALUES (:resourceExternalId) ON CONFLICT (resource_external_id) DO NOTHING";
+
+    private static final String LOCK = "SELECT event_count FROM resource_digest " +
+            "WHERE resource_external_id = :resourceExternalId FOR UPDATE";
+
+    private static final String SELECT_BY_RESOURCE_EXTERNAL_ID = "SELECT * FROM resource_digest " +
+            "WHERE resource_external_id = :resourceExternalId AND event_count > 0";
+
+    private static final String SELECT_BY_RESOURCE_EXTERNAL_IDS = "SELECT * FROM resource_digest " +
+            "WHERE resource_external_id IN (<resourceExternalIds>) AND event_count > 0";
+
+    private static final String UPDATE = "UPDATE resource_digest SET " +
+            "resource_type = :resourceType, " +
+            "parent_resource_external_id = :parentResourceExternalId, " +
+            "event_count = :eventCount, " +
+            "event_payload = CAST(:eventPayload AS jsonb), " +
+            "most_recent_event_date = :mostRecentEventDate, " +
+            "most_recent_salient_event_type = :mostRecentSalientEventType, " +
+            "salient_event_types = CAST(:salientEventTypes AS jsonb), " +
+            "earliest_event_date = :earliestEventDate, " +
+            "updated_date = now() " +
+            "WHERE resource_external_id = :resourceExternalId";
+
+    private final Jdbi jdbi;
+
+    @Inject
+    public ResourceDigestDao(Jdbi jdbi) {
+        this.jdbi = jdbi;
+    }
+
+    /**
+     * Runs the work in a single transaction, which the event and snapshot updates it makes take part in.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return jdbi.inTransaction(handle -> work.get());
+    }
+
+    /**
+     * Locks the snapshot of a resource until the end of the current transaction, creating an empty placeholder for
+     * it first if it does not exist yet, so that concurrent updates of one resource's snapshot are serialised.
+     *
+     * @return the snapshot, or empty if the resource has no snapshot yet
+     */
+    public Optional<EventDigest> findForUpdate(String resourceExternalId) {
+        return jdbi.withHandle(handle -> {
+            handle.createUpdate(INSERT_PLACEHOLDER)
+                    .bind("resourceExternalId", resourceExternalId)
+                    .execute();
+            handle.createQuery(LOCK)
+                    .bind("resourceExternalId", resourceExternalId)
+                    .mapTo(Integer.class)
+                    .one();
+            return handle.createQuery(SELECT_BY_RESOURCE_EXTERNAL_ID)
+                    .bind("resourceExternalId", resourceExternalId)
+                    .map(new ResourceDigestMapper())
+                    .findFirst();
+        });
+    }
+
+    public Optional<EventDigest> findByResourceExternalId(String resourceExternalId) {
+        return jdbi.withHandle(handle -> handle.createQuery(SELECT_BY_RESOURCE_EXTERNAL_ID)
+                .bind("resourceExternalId", resourceExternalId)
+                .map(new ResourceDigestMapper())
+                .findFirst());
+    }
+
+    public List<EventDigest> findByResourceExternalIds(Collection<String> resourceExternalIds) {
+        return jdbi.withHandle(handle -> handle.createQuery(SELECT_BY_RESOURCE_EXTERNAL_IDS)
+                .bindList("resourceExternalIds", List.copyOf(resourceExternalIds))
+                .map(new ResourceDigestMapper())
+                .list());
+    }
+
+    /**
+     * Replaces the snapshot of a resource, which must have been locked with {@link #findForUpdate(String)} in the
+     * current transaction.
+     */
+    public void update(EventDigest eventDigest) {
+        jdbi.useHandle(handle -> handle.createUpdate(UPDATE)
+                .bind("resourceExternalId", eventDigest.getResourceExternalId())
+                .bind("resourceType", eventDigest.getResourceType().name())
+                .bind("parentResourceExternalId", eventDigest.getParentResourceExternalId())
+                .bind("eventCount", eventDigest.getEventCount())
+                .bind("eventPayload", toJson(eventDigest.getEventPayload()))
+                .bind("mostRecentEventDate", eventDigest.getMostRecentEventTimestamp())
+                .bind("mostRecentSalientEventType", eventDigest.getMostRecentSalientEventType()
+                        .map(SalientEventType::name)
+                        .orElse(null))
+                .bind("salientEventTypes", toJson(eventDigest.getSalientEventTypes().stream()
+                        .map(SalientEventType::name)
+                        .collect(Collectors.toList())))
+                .bind("earliestEventDate", eventDigest.getEventCreatedDate())
+                .execute());
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialise resource digest", e);
+        }
+    }
+}
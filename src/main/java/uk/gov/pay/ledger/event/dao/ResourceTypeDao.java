@@ -1,10 +1,19 @@
 package uk.gov.pay.ledger.event.dao;
 
+import org.jdbi.v3.sqlobject.config.KeyColumn;
+import org.jdbi.v3.sqlobject.config.ValueColumn;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 
+import java.util.Map;
+
 public interface ResourceTypeDao {
 
     @SqlQuery("SELECT id FROM resource_type WHERE upper(name) = :name")
     int getResourceTypeIdByName(@Bind("name") String name);
+
+    @SqlQuery("SELECT upper(name) AS name, id FROM resource_type")
+    @KeyColumn("name")
+    @ValueColumn("id")
+    Map<String, Integer> getResourceTypeIdsByName();
 }
@@ -0,0 +1,68 @@
+package uk.gov.pay.ledger.event.dao.mapper;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.event.model.SalientEventType;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class ResourceDigestMapper implements RowMapper<EventDigest> {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public EventDigest map(ResultSet rs, StatementContext ctx) throws SQLException {
+        String mostRecentSalientEventType = rs.getString("most_recent_salient_event_type");
+        return EventDigest.fromSnapshot(
+                toZonedDateTime(rs.getTimestamp("most_recent_event_date")),
+                mostRecentSalientEventType == null ? null : SalientEventType.valueOf(mostRecentSalientEventType),
+                toSalientEventTypes(rs.getString("salient_event_types")),
+                ResourceType.valueOf(rs.getString("resource_type")),
+                rs.getString("resource_external_id"),
+                rs.getString("parent_resource_external_id"),
+                rs.getInt("event_count"),
+                toMap(rs.getString("event_payload")),
+                toZonedDateTime(rs.getTimestamp("earliest_event_date")));
+    }
+
+    private static ZonedDateTime toZonedDateTime(Timestamp timestamp) {
+        return ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneOffset.UTC);
+    }
+
+    private static Set<SalientEventType> toSalientEventTypes(String json) throws SQLException {
+        try {
+            List<String> salientEventTypes = json == null
+                    ? List.of()
+                    : objectMapper.readValue(json, new TypeReference<List<String>>() {});
+            return salientEventTypes.stream()
+                    .map(SalientEventType::valueOf)
+                    .collect(Collectors.toSet());
+        } catch (IOException e) {
+            throw new SQLException("Could not read salient event types of resource digest", e);
+        }
+    }
+
+    private static Map<String, Object> toMap(String json) throws SQLException {
+        try {
+            return json == null
+                    ? Map.of()
+                    : Collections.unmodifiableMap(objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {}));
+        } catch (IOException e) {
+            throw new SQLException("Could not read event payload of resource digest", e);
+        }
+    }
+}
@@ -5,8 +5,11 @@ import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import uk.gov.pay.commons.api.json.MicrosecondPrecisionDateTimeSerializer;
+import uk.gov.pay.ledger.util.JsonParser;
 
 import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
@@ -22,6 +25,8 @@ public class Event {
     private ZonedDateTime eventDate;
     private String eventType;
     private String eventData;
+    @JsonIgnore
+    private volatile Map<String, Object> eventDataMap;
 
     public Event() { }
 
@@ -37,6 +42,15 @@ public class Event {
         this.eventData = eventData;
     }
 
+    /**
+     * @param eventDataMap the event data already parsed, so that it is not parsed again from {@code eventData}
+     */
+    public Event(String queueMessageId, ResourceType resourceType, String resourceExternalId, String parentResourceExternalId,
+                 ZonedDateTime eventDate, String eventType, String eventData, Map<String, Object> eventDataMap) {
+        this(queueMessageId, resourceType, resourceExternalId, parentResourceExternalId, eventDate, eventType, eventData);
+        this.eventDataMap = eventDataMap == null ? null : Collections.unmodifiableMap(eventDataMap);
+    }
+
     public Event(String queueMessageId, ResourceType resourceType, String resourceExternalId, String parentResourceExternalId, ZonedDateTime eventDate,
                  String eventType, String eventData) {
         this(null, queueMessageId, resourceType, resourceExternalId, parentResourceExternalId, eventDate, eventType, eventData);
@@ -74,6 +88,21 @@ public class Event {
         return eventData;
     }
 
+    /**
+     * The event data parsed into a map. It is parsed the first time it is asked for and then shared by every stage
+     * that reads the event, so callers must not modify it.
+     */
+    @JsonIgnore
+    public Map<String, Object> getEventDataMap() {
+        Map<String, Object> parsedEventData = eventDataMap;
+        if (parsedEventData == null) {
+            Map<String, Object> map = eventData == null ? null : JsonParser.jsonStringToMap(eventData);
+            parsedEventData = map == null ? Map.of() : Collections.unmodifiableMap(map);
+            eventDataMap = parsedEventData;
+        }
+        return parsedEventData;
+    }
+
     @Override
     public String toString() {
         return "Event{" +
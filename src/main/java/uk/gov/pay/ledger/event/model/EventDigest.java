@@ -2,13 +2,15 @@ package uk.gov.pay.ledger.event.model;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import uk.gov.pay.ledger.exception.EmptyEventsException;
-import uk.gov.pay.ledger.util.JsonParser;
 
 import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 
@@ -19,6 +21,7 @@ public class EventDigest {
     private final String resourceExternalId;
     private final String parentResourceExternalId;
     private final SalientEventType mostRecentSalientEventType;
+    private final Set<SalientEventType> salientEventTypes;
     private Integer eventCount;
     private Map<String, Object> eventPayload;
     private final ZonedDateTime eventCreatedDate;
@@ -26,6 +29,7 @@ public class EventDigest {
     private EventDigest(
             ZonedDateTime mostRecentEventTimestamp,
             SalientEventType mostRecentSalientEventType,
+            Set<SalientEventType> salientEventTypes,
             ResourceType resourceType,
             String resourceExternalId,
             String parentResourceExternalId,
@@ -35,6 +39,7 @@ public class EventDigest {
     ) {
         this.mostRecentEventTimestamp = mostRecentEventTimestamp;
         this.mostRecentSalientEventType = mostRecentSalientEventType;
+        this.salientEventTypes = salientEventTypes;
         this.resourceType = resourceType;
         this.resourceExternalId = resourceExternalId;
         this.parentResourceExternalId = parentResourceExternalId;
@@ -43,30 +48,49 @@ public class EventDigest {
         this.eventCreatedDate = eventCreatedDate;
     }
 
+    /**
+     * Builds the digest of a resource's events, which must be ordered most recent first, in a single pass over them.
+     */
     public static EventDigest fromEventList(List<Event> events) {
-        var eventPayload = buildEventPayload(events);
-
-        var latestEvent = events.stream()
-                .findFirst()
-                .orElseThrow(() -> new EmptyEventsException("No events found"));
-
-        var latestSalientEventType = events.stream()
-                .map(Event::getEventType)
-                .map(SalientEventType::from)
-                .flatMap(Optional::stream)
-                .findFirst()
-                .orElse(null);
-
-        var earliestDate = events.stream()
-                .map(Event::getEventDate)
-                .min(ZonedDateTime::compareTo)
-                .orElseThrow();
-
-        String parentResourceExternalId = deriveParentResourceExternalId(events);
-
+        if (events.isEmpty()) {
+            throw new EmptyEventsException("No events found");
+        }
+
+        var eventPayload = new HashMap<String, Object>();
+        var salientEventTypes = EnumSet.noneOf(SalientEventType.class);
+        SalientEventType latestSalientEventType = null;
+        String parentResourceExternalId = null;
+        ZonedDateTime earliestDate = null;
+
+        for (Event event : events) {
+            for (Map.Entry<String, Object> entry : event.getEventDataMap().entrySet()) {
+                if (!eventPayload.containsKey(entry.getKey())) {
+                    eventPayload.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            SalientEventType salientEventType = SalientEventType.lookup(event.getEventType());
+            if (salientEventType != null) {
+                salientEventTypes.add(salientEventType);
+                if (latestSalientEventType == null) {
+                    latestSalientEventType = salientEventType;
+                }
+            }
+
+            if (parentResourceExternalId == null && isNotEmpty(event.getParentResourceExternalId())) {
+                parentResourceExternalId = event.getParentResourceExternalId();
+            }
+
+            if (earliestDate == null || event.getEventDate().isBefore(earliestDate)) {
+                earliestDate = event.getEventDate();
+            }
+        }
+
+        var latestEvent = events.get(0);
         return new EventDigest(
                 latestEvent.getEventDate(),
                 latestSalientEventType,
+                salientEventTypes,
                 latestEvent.getResourceType(),
                 latestEvent.getResourceExternalId(),
                 parentResourceExternalId,
@@ -76,20 +100,59 @@ public class EventDigest {
         );
     }
 
-    private static String deriveParentResourceExternalId(List<Event> events) {
-        return events.stream()
-                .filter(event -> isNotEmpty(event.getParentResourceExternalId()))
-                .map(Event::getParentResourceExternalId)
-                .findFirst()
-                .orElse(null);
+    /**
+     * Restores a digest from its persisted snapshot in the resource_digest table.
+     */
+    public static EventDigest fromSnapshot(
+            ZonedDateTime mostRecentEventTimestamp,
+            SalientEventType mostRecentSalientEventType,
+            Set<SalientEventType> salientEventTypes,
+            ResourceType resourceType,
+            String resourceExternalId,
+            String parentResourceExternalId,
+            Integer eventCount,
+            Map<String, Object> eventPayload,
+            ZonedDateTime eventCreatedDate
+    ) {
+        return new EventDigest(
+                mostRecentEventTimestamp,
+                mostRecentSalientEventType,
+                salientEventTypes.isEmpty() ? EnumSet.noneOf(SalientEventType.class) : EnumSet.copyOf(salientEventTypes),
+                resourceType,
+                resourceExternalId,
+                parentResourceExternalId,
+                eventCount,
+                eventPayload,
+                eventCreatedDate
+        );
     }
 
-    private static Map<String, Object> buildEventPayload(List<Event> events) {
-        return events.stream()
-                .map(Event::getEventData)
-                .map(JsonParser::jsonStringToMap)
-                .flatMap(m -> m.entrySet().stream())
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (later, earlier) -> later));
+    /**
+     * Folds a single event that is more recent than every event already in this digest into a new digest, giving the
+     * same result as rebuilding the digest from the full event list including that event. This digest is unchanged.
+     */
+    public EventDigest fold(Event event) {
+        var eventPayload = new HashMap<>(this.eventPayload);
+        eventPayload.putAll(event.getEventDataMap());
+
+        var salientEventType = SalientEventType.lookup(event.getEventType());
+        var salientEventTypes = EnumSet.noneOf(SalientEventType.class);
+        salientEventTypes.addAll(this.salientEventTypes);
+        if (salientEventType != null) {
+            salientEventTypes.add(salientEventType);
+        }
+
+        return new EventDigest(
+                event.getEventDate(),
+                salientEventType != null ? salientEventType : mostRecentSalientEventType,
+                salientEventTypes,
+                event.getResourceType(),
+                event.getResourceExternalId(),
+                isNotEmpty(event.getParentResourceExternalId()) ? event.getParentResourceExternalId() : parentResourceExternalId,
+                eventCount + 1,
+                eventPayload,
+                eventCreatedDate.isAfter(event.getEventDate()) ? event.getEventDate() : eventCreatedDate
+        );
     }
 
     public ZonedDateTime getMostRecentEventTimestamp() {
@@ -112,6 +175,10 @@ public class EventDigest {
         return Optional.ofNullable(mostRecentSalientEventType);
     }
 
+    public Set<SalientEventType> getSalientEventTypes() {
+        return Collections.unmodifiableSet(salientEventTypes);
+    }
+
     public Map<String, Object> getEventPayload() {
         return eventPayload;
     }
@@ -0,0 +1,121 @@
+package uk.gov.pay.ledger.event.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Maps a digest's event payload to an entity and to the JSON details stored alongside it in a single pass over the
+ * payload, filling the entity's fields directly rather than having Jackson buffer the payload and bind it
+ * reflectively. Values of a type the mapper does not handle are mapped exactly as before, by Jackson.
+ *
+ * @param <B> the builder that the payload's fields are applied to
+ * @param <T> the entity
+ */
+public abstract class EventPayloadMapper<B, T> {
+
+    protected final ObjectMapper objectMapper;
+
+    protected EventPayloadMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    protected abstract B newBuilder();
+
+    /**
+     * Applies one field of the payload to the builder, ignoring fields that are not mapped to the entity.
+     *
+     * @throws UnsupportedValueException if the value is not of a type this mapper handles
+     */
+    protected abstract void apply(B builder, String field, Object value) throws UnsupportedValueException;
+
+    protected abstract T build(B builder, String details);
+
+    /**
+     * Maps the payload and writes its details with Jackson, for payloads with values this mapper does not handle.
+     */
+    protected abstract T buildWithJackson(Map<String, Object> payload);
+
+    public T map(Map<String, Object> payload) {
+        try {
+            B builder = newBuilder();
+            // written to Jackson's recycled buffers, as writeValueAsString does
+            SegmentedStringWriter details = new SegmentedStringWriter(objectMapper.getFactory()._getBufferRecycler());
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(details)) {
+                generator.writeStartObject();
+                for (Map.Entry<String, Object> entry : payload.entrySet()) {
+                    apply(builder, entry.getKey(), entry.getValue());
+                    generator.writeFieldName(entry.getKey());
+                    writeValue(generator, entry.getValue());
+                }
+                generator.writeEndObject();
+            }
+            return build(builder, details.getAndClear());
+        } catch (UnsupportedValueException | IOException e) {
+            return buildWithJackson(payload);
+        }
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer) {
+            generator.writeNumber((Integer) value);
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            objectMapper.writeValue(generator, value);
+        }
+    }
+
+    protected static String stringValue(Object value) throws UnsupportedValueException {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return value.toString();
+        }
+        throw new UnsupportedValueException();
+    }
+
+    protected static Long longValue(Object value) throws UnsupportedValueException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        throw new UnsupportedValueException();
+    }
+
+    protected static boolean booleanValue(Object value) throws UnsupportedValueException {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new UnsupportedValueException();
+    }
+
+    protected static void requireAbsent(Object value) throws UnsupportedValueException {
+        if (value != null) {
+            throw new UnsupportedValueException();
+        }
+    }
+
+    protected static class UnsupportedValueException extends Exception {
+        public UnsupportedValueException() {
+            super(null, null, false, false);
+        }
+    }
+}
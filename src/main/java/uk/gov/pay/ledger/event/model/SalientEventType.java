@@ -1,6 +1,7 @@
 package uk.gov.pay.ledger.event.model;
 
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public enum SalientEventType {
@@ -50,9 +51,22 @@ public enum SalientEventType {
     PAYOUT_PAID,
     PAYOUT_FAILED;
 
+    private static final Map<String, SalientEventType> BY_EVENT_TYPE = new HashMap<>();
+
+    static {
+        for (SalientEventType salientEventType : values()) {
+            BY_EVENT_TYPE.put(salientEventType.name(), salientEventType);
+        }
+    }
+
     public static Optional<SalientEventType> from(String eventName) {
-        return Arrays.stream(SalientEventType.values())
-                .filter(v -> v.name().equals(eventName))
-                .findFirst();
+        return Optional.ofNullable(lookup(eventName));
+    }
+
+    /**
+     * @return the salient event type with the given name, or null if the event type is not salient
+     */
+    public static SalientEventType lookup(String eventName) {
+        return BY_EVENT_TYPE.get(eventName);
     }
 }
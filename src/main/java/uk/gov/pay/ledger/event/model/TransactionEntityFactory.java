@@ -1,23 +1,23 @@
 package uk.gov.pay.ledger.event.model;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static java.util.stream.Collectors.toMap;
+
 public class TransactionEntityFactory {
 
-    private ObjectMapper objectMapper;
-    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionEntityFactory.class);
+    private final TransactionEntityPayloadMapper payloadMapper;
 
     @Inject
     public TransactionEntityFactory(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this.payloadMapper = new TransactionEntityPayloadMapper(objectMapper);
     }
 
     public TransactionEntity create(EventDigest eventDigest) {
@@ -30,9 +30,7 @@ public class TransactionEntityFactory {
                 .map(TransactionState::fromEventType)
                 .orElse(TransactionState.UNDEFINED);
 
-        String transactionDetail = convertToTransactionDetails(eventPayload);
-        TransactionEntity entity = objectMapper.convertValue(eventPayload, TransactionEntity.class);
-        entity.setTransactionDetails(transactionDetail);
+        TransactionEntity entity = payloadMapper.map(eventPayload);
         entity.setEventCount(eventDigest.getEventCount());
         entity.setState(digestTransactionState);
         entity.setCreatedDate(eventDigest.getEventCreatedDate());
@@ -43,13 +41,39 @@ public class TransactionEntityFactory {
         return entity;
     }
 
-    private String convertToTransactionDetails(Map<String, Object> transactionPayload) {
-        try {
-            return objectMapper.writeValueAsString(transactionPayload);
-        } catch (JsonProcessingException e) {
-            LOGGER.error("Unable to parse incoming event payload: {}", e.getMessage());
-        }
-        return "{}";
+    public TransactionEntity createRefund(EventDigest refundEventDigest, EventDigest paymentEventDigest) {
+        /**
+         * Apply shared refund payment attributes to the refund digest
+         *
+         * Frontend consumers rely on searching/ filtering/ downloading attributes that belong to a payment on the
+         * refund. Previously this was done at the "view" level by joining transactions to transactions, for performance
+         * reasons this is now done here during domain object projection (as transactions are de-normalised).
+         *
+         * If there is no longer a frontend requirement to display payment information on a refund, this shared data
+         * for the digest can be removed.
+         */
+        Map<String, Object> fieldsFromPayment = getPaymentFieldsToProjectOnToRefund(paymentEventDigest);
+        Map<String, Object> refundEventPayload = new HashMap<>(refundEventDigest.getEventPayload());
+        refundEventPayload.put("payment_details", fieldsFromPayment);
+
+        TransactionEntity refundTransactionEntity = create(refundEventDigest, refundEventPayload);
+        TransactionEntity paymentTransactionEntity = create(paymentEventDigest);
+        refundTransactionEntity.setEntityFieldsFromOriginalPayment(paymentTransactionEntity);
+
+        return refundTransactionEntity;
+    }
+
+    private Map<String, Object> getPaymentFieldsToProjectOnToRefund(EventDigest paymentEventDigest) {
+        List<String> paymentsFieldsToCopyToRefunds = List.of("card_brand_label", "expiry_date", "card_type", "wallet_type");
+
+        var paymentPayloadIsEmpty = paymentEventDigest == null || paymentEventDigest.getEventPayload() == null;
+
+        return paymentPayloadIsEmpty
+                ? Map.of()
+                : paymentEventDigest.getEventPayload()
+                .entrySet()
+                .stream().filter(entry -> paymentsFieldsToCopyToRefunds.contains(entry.getKey()))
+                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
 }
@@ -0,0 +1,141 @@
+package uk.gov.pay.ledger.event.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.commons.model.Source;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.util.Map;
+
+/**
+ * Maps an event payload to the fields of a {@link TransactionEntity} that Jackson would bind from it (by their snake
+ * case names) and to its transaction details.
+ */
+public class TransactionEntityPayloadMapper extends EventPayloadMapper<TransactionEntity.Builder, TransactionEntity> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionEntityPayloadMapper.class);
+
+    public TransactionEntityPayloadMapper(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected TransactionEntity.Builder newBuilder() {
+        return new TransactionEntity.Builder();
+    }
+
+    @Override
+    protected void apply(TransactionEntity.Builder builder, String field, Object value) throws UnsupportedValueException {
+        switch (field) {
+            case "gateway_account_id":
+                builder.withGatewayAccountId(stringValue(value));
+                break;
+            case "amount":
+                builder.withAmount(longValue(value));
+                break;
+            case "reference":
+                builder.withReference(stringValue(value));
+                break;
+            case "description":
+                builder.withDescription(stringValue(value));
+                break;
+            case "email":
+                builder.withEmail(stringValue(value));
+                break;
+            case "cardholder_name":
+                builder.withCardholderName(stringValue(value));
+                break;
+            case "card_brand":
+                builder.withCardBrand(stringValue(value));
+                break;
+            case "last_digits_card_number":
+                builder.withLastDigitsCardNumber(stringValue(value));
+                break;
+            case "first_digits_card_number":
+                builder.withFirstDigitsCardNumber(stringValue(value));
+                break;
+            case "net_amount":
+                builder.withNetAmount(longValue(value));
+                break;
+            case "total_amount":
+                builder.withTotalAmount(longValue(value));
+                break;
+            case "fee":
+                builder.withFee(longValue(value));
+                break;
+            case "refund_status":
+                builder.withRefundStatus(stringValue(value));
+                break;
+            case "refund_amount_refunded":
+                builder.withRefundAmountRefunded(longValue(value));
+                break;
+            case "refund_amount_available":
+                builder.withRefundAmountAvailable(longValue(value));
+                break;
+            case "live":
+                builder.withLive(booleanValue(value));
+                break;
+            case "moto":
+                builder.withMoto(booleanValue(value));
+                break;
+            case "gateway_transaction_id":
+                builder.withGatewayTransactionId(stringValue(value));
+                break;
+            case "gateway_payout_id":
+                builder.withGatewayPayoutId(stringValue(value));
+                break;
+            case "source":
+                builder.withSource(sourceValue(value));
+                break;
+            case "transaction_type":
+                // set from the digest's resource type
+                stringValue(value);
+                break;
+            case "state":
+            case "payout_entity":
+                requireAbsent(value);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    protected TransactionEntity build(TransactionEntity.Builder builder, String details) {
+        return builder
+                .withTransactionDetails(details)
+                .build();
+    }
+
+    @Override
+    protected TransactionEntity buildWithJackson(Map<String, Object> payload) {
+        TransactionEntity entity = objectMapper.convertValue(payload, TransactionEntity.class);
+        entity.setTransactionDetails(convertToTransactionDetails(payload));
+        return entity;
+    }
+
+    private String convertToTransactionDetails(Map<String, Object> transactionPayload) {
+        try {
+            return objectMapper.writeValueAsString(transactionPayload);
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Unable to parse incoming event payload: {}", e.getMessage());
+        }
+        return "{}";
+    }
+
+    private static Source sourceValue(Object value) throws UnsupportedValueException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            try {
+                return Source.valueOf((String) value);
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedValueException();
+            }
+        }
+        throw new UnsupportedValueException();
+    }
+}
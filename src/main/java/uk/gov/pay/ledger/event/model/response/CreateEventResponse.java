@@ -18,6 +18,11 @@ public class CreateEventResponse {
         this.state = status.isPresent() ? CreateEventState.INSERTED : CreateEventState.IGNORED;
     }
 
+    public CreateEventResponse(boolean inserted) {
+        this.isSuccessful = true;
+        this.state = inserted ? CreateEventState.INSERTED : CreateEventState.IGNORED;
+    }
+
     public CreateEventResponse(Exception exception) {
         this.exception = exception;
         this.isSuccessful = false;
@@ -1,40 +1,191 @@
 package uk.gov.pay.ledger.event.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.dao.ResourceDigestDao;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
+import uk.gov.pay.ledger.referencedata.ReferenceDataCache;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class EventService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventService.class);
+
     private EventDao eventDao;
+    private ResourceDigestDao resourceDigestDao;
+    private ReferenceDataCache referenceDataCache;
+    private final Counter snapshotHits;
+    private final Counter snapshotMisses;
 
     @Inject
-    public EventService(EventDao eventDao) {
+    public EventService(EventDao eventDao, ResourceDigestDao resourceDigestDao, ReferenceDataCache referenceDataCache,
+                        MetricRegistry metricRegistry) {
         this.eventDao = eventDao;
+        this.resourceDigestDao = resourceDigestDao;
+        this.referenceDataCache = referenceDataCache;
+        this.snapshotHits = metricRegistry.counter("event-digest.snapshot.hits");
+        this.snapshotMisses = metricRegistry.counter("event-digest.snapshot.misses");
     }
 
+    /**
+     * Reads the persisted snapshot of the resource's digest, falling back to building the digest from the full event
+     * history for resources that have had no events since snapshots were introduced.
+     */
     public EventDigest getEventDigestForResource(String resourceExternalId) {
-        List<Event> events = getEventsForResource(resourceExternalId);
-        return EventDigest.fromEventList(events);
+        Optional<EventDigest> snapshot = resourceDigestDao.findByResourceExternalId(resourceExternalId);
+        if (snapshot.isPresent()) {
+            snapshotHits.inc();
+            return snapshot.get();
+        }
+        snapshotMisses.inc();
+        return EventDigest.fromEventList(getEventsForResource(resourceExternalId));
+    }
+
+    /**
+     * Reads the snapshots of several resources' digests in a single query, building the digests of any resources
+     * without a snapshot from a single query for all of their events. Resources without any events are left out of
+     * the result.
+     */
+    public Map<String, EventDigest> getEventDigestsForResources(Collection<String> resourceExternalIds) {
+        if (resourceExternalIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, EventDigest> eventDigests = new LinkedHashMap<>();
+        resourceDigestDao.findByResourceExternalIds(resourceExternalIds).forEach(eventDigest ->
+                eventDigests.put(eventDigest.getResourceExternalId(), eventDigest));
+
+        Set<String> resourcesWithoutSnapshot = resourceExternalIds.stream()
+                .filter(resourceExternalId -> !eventDigests.containsKey(resourceExternalId))
+                .collect(Collectors.toSet());
+        snapshotHits.inc(eventDigests.size());
+        snapshotMisses.inc(resourcesWithoutSnapshot.size());
+        if (resourcesWithoutSnapshot.isEmpty()) {
+            return eventDigests;
+        }
+
+        Map<String, List<Event>> eventsByResource = eventDao.findEventsForExternalIds(resourcesWithoutSnapshot)
+                .stream()
+                .collect(Collectors.groupingBy(Event::getResourceExternalId, LinkedHashMap::new, Collectors.toList()));
+
+        eventsByResource.forEach((resourceExternalId, eventsOldestFirst) -> {
+            List<Event> eventsMostRecentFirst = new ArrayList<>(eventsOldestFirst);
+            Collections.reverse(eventsMostRecentFirst);
+            eventDigests.put(resourceExternalId, EventDigest.fromEventList(eventsMostRecentFirst));
+        });
+        return eventDigests;
     }
 
     public List<Event> getEventsForResource(String resourceExternalId) {
         return eventDao.getEventsByResourceExternalId(resourceExternalId);
     }
 
+    /**
+     * Inserts the event and updates the snapshot of its resource's digest in one transaction.
+     */
     public CreateEventResponse createIfDoesNotExist(Event event) {
         try {
-            Optional<Long> status = eventDao.insertEventIfDoesNotExistWithResourceTypeId(event);
+            Optional<Long> status = resourceDigestDao.inTransaction(() -> {
+                Optional<Long> eventId = eventDao.insertIfDoesNotExist(event, referenceDataCache.getResourceTypeId(event.getResourceType()));
+                eventId.ifPresent(id -> updateResourceDigests(List.of(event)));
+                return eventId;
+            });
             return new CreateEventResponse(status);
         } catch (Exception e) {
             return new CreateEventResponse(e);
         }
     }
 
+    /**
+     * Persists a whole batch of events in one round trip, returning a response for each event in the order given,
+     * and updates the snapshots of the digests of their resources in the same transaction. If the batch as a whole is
+     * rejected (for example because one event references an unknown resource type) the events are retried
+     * individually so that a single bad event does not fail the rest of the batch.
+     */
+    public List<CreateEventResponse> createAllIfDoesNotExist(List<Event> events) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            List<Integer> resourceTypeIds = events.stream()
+                    .map(event -> referenceDataCache.getResourceTypeId(event.getResourceType()))
+                    .collect(Collectors.toList());
+            int[] insertCounts = resourceDigestDao.inTransaction(() -> {
+                int[] counts = eventDao.insertAllIfDoesNotExist(events, resourceTypeIds);
+                updateResourceDigests(IntStream.range(0, events.size())
+                        .filter(i -> counts[i] > 0)
+                        .mapToObj(events::get)
+                        .collect(Collectors.toList()));
+                return counts;
+            });
+            return Arrays.stream(insertCounts)
+                    .mapToObj(insertCount -> new CreateEventResponse(insertCount > 0))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            LOGGER.warn("Batch insert of events failed, inserting events individually. [numberOfEvents={}] [errorMessage={}]",
+                    events.size(), e.getMessage());
+            return events.stream()
+                    .map(this::createIfDoesNotExist)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Folds newly inserted events into the snapshots of their resources' digests. Each snapshot is locked first, and
+     * the resources are locked in a consistent order so that concurrent batches cannot deadlock. A snapshot is rebuilt
+     * from the resource's full event history if it does not exist yet or if an event is not more recent than every
+     * event already in it.
+     */
+    private void updateResourceDigests(List<Event> insertedEvents) {
+        Map<String, List<Event>> eventsByResource = insertedEvents.stream()
+                .collect(Collectors.groupingBy(Event::getResourceExternalId, TreeMap::new, Collectors.toList()));
+
+        eventsByResource.forEach((resourceExternalId, events) -> {
+            EventDigest eventDigest = resourceDigestDao.findForUpdate(resourceExternalId)
+                    .flatMap(snapshot -> foldInOrder(snapshot, events))
+                    .orElseGet(() -> EventDigest.fromEventList(getEventsForResource(resourceExternalId)));
+            resourceDigestDao.update(eventDigest);
+        });
+    }
+
+    private static Optional<EventDigest> foldInOrder(EventDigest snapshot, List<Event> events) {
+        List<Event> eventsOldestFirst = events.stream()
+                .sorted(Comparator.comparing(Event::getEventDate))
+                .collect(Collectors.toList());
+
+        EventDigest eventDigest = snapshot;
+        for (Event event : eventsOldestFirst) {
+            if (!event.getEventDate().isAfter(eventDigest.getMostRecentEventTimestamp())) {
+                return Optional.empty();
+            }
+            eventDigest = eventDigest.fold(event);
+        }
+        return Optional.of(eventDigest);
+    }
+
+    /**
+     * Reads the snapshot of the digest of the event's resource, which already holds the event since it was updated
+     * when the event was inserted.
+     */
     public EventDigest getEventDigestForResource(Event event) {
         return getEventDigestForResource(event.getResourceExternalId());
     }
@@ -1,11 +1,14 @@
 package uk.gov.pay.ledger.metadatakey.dao;
 
 
+import org.jdbi.v3.sqlobject.config.KeyColumn;
+import org.jdbi.v3.sqlobject.config.ValueColumn;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
+import java.util.Map;
 import java.util.Optional;
 
 public interface MetadataKeyDao {
@@ -18,4 +21,12 @@ public interface MetadataKeyDao {
             "    WHERE key = :key )")
     @GetGeneratedKeys
     Optional<Long> insertIfNotExist(@Bind("key") String key);
-}
\ No newline at end of file
+
+    @SqlQuery("SELECT id FROM metadata_key WHERE key = :key ORDER BY id LIMIT 1")
+    Optional<Long> findIdByKey(@Bind("key") String key);
+
+    @SqlQuery("SELECT key, min(id) AS id FROM metadata_key GROUP BY key")
+    @KeyColumn("key")
+    @ValueColumn("id")
+    Map<String, Long> getMetadataKeyIdsByKey();
+}
@@ -3,6 +3,7 @@ package uk.gov.pay.ledger.payout.dao;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
 import uk.gov.pay.ledger.payout.dao.mapper.PayoutMapper;
 import uk.gov.pay.ledger.payout.entity.PayoutEntity;
@@ -11,6 +12,7 @@ import uk.gov.pay.ledger.payout.search.PayoutSearchParams;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
 public class PayoutDao {
 
@@ -78,6 +80,20 @@ public class PayoutDao {
                         .execute());
     }
 
+    /**
+     * Upserts the payouts as a single JDBC batch.
+     */
+    public int upsertAll(List<PayoutEntity> payouts) {
+        if (payouts.isEmpty()) {
+            return 0;
+        }
+        return jdbi.withHandle(handle -> {
+            PreparedBatch batch = handle.prepareBatch(UPSERT_PAYOUT);
+            payouts.forEach(payout -> batch.bindBean(payout).add());
+            return IntStream.of(batch.execute()).sum();
+        });
+    }
+
     public List<PayoutEntity> searchPayouts(PayoutSearchParams searchParams) {
         return jdbi.withHandle(handle -> {
             Query query = handle.createQuery(createSearchTemplate(searchParams.getFilterTemplates(), SEARCH_PAYOUTS));
@@ -0,0 +1,95 @@
+package uk.gov.pay.ledger.payout.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.event.model.EventPayloadMapper;
+import uk.gov.pay.ledger.payout.entity.PayoutEntity;
+import uk.gov.pay.ledger.payout.entity.PayoutEntity.PayoutEntityBuilder;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+import static uk.gov.pay.ledger.payout.entity.PayoutEntity.PayoutEntityBuilder.aPayoutEntity;
+
+/**
+ * Maps an event payload to the fields of a {@link PayoutEntity} that Jackson would bind from it (by their snake case
+ * names) and to its payout details.
+ */
+public class PayoutEntityPayloadMapper extends EventPayloadMapper<PayoutEntityBuilder, PayoutEntity> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PayoutEntityPayloadMapper.class);
+
+    public PayoutEntityPayloadMapper(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected PayoutEntityBuilder newBuilder() {
+        return aPayoutEntity();
+    }
+
+    @Override
+    protected void apply(PayoutEntityBuilder builder, String field, Object value) throws UnsupportedValueException {
+        switch (field) {
+            case "gateway_payout_id":
+                builder.withGatewayPayoutId(stringValue(value));
+                break;
+            case "amount":
+                builder.withAmount(longValue(value));
+                break;
+            case "gateway_account_id":
+                builder.withGatewayAccountId(stringValue(value));
+                break;
+            case "paid_out_date":
+                builder.withPaidOutDate(zonedDateTimeValue(value));
+                break;
+            case "state":
+            case "event_count":
+            case "payout_details":
+                requireAbsent(value);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    protected PayoutEntity build(PayoutEntityBuilder builder, String details) {
+        return builder
+                .withPayoutDetails(details)
+                .build();
+    }
+
+    @Override
+    protected PayoutEntity buildWithJackson(Map<String, Object> payload) {
+        PayoutEntity entity = objectMapper.convertValue(payload, PayoutEntity.class);
+        entity.setPayoutDetails(convertToPayoutDetails(payload));
+        return entity;
+    }
+
+    private String convertToPayoutDetails(Map<String, Object> payoutPayload) {
+        try {
+            return objectMapper.writeValueAsString(payoutPayload);
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Unable to parse incoming event payload: {}", e.getMessage());
+        }
+        return "{}";
+    }
+
+    private static ZonedDateTime zonedDateTimeValue(Object value) throws UnsupportedValueException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            try {
+                return ZonedDateTime.parse((String) value);
+            } catch (DateTimeParseException e) {
+                throw new UnsupportedValueException();
+            }
+        }
+        throw new UnsupportedValueException();
+    }
+}
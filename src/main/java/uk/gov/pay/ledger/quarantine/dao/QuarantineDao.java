@@ -0,0 +1,102 @@
+package uk.gov.pay.ledger.quarantine.dao;
+
+import com.google.inject.Inject;
+import org.jdbi.v3.core.Jdbi;
+import uk.gov.pay.ledger.quarantine.dao.mapper.QuarantinedMessageMapper;
+import uk.gov.pay.ledger.quarantine.model.QuarantinedMessage;
+
+import java.util.List;
+import java.util.Optional;
+
+public class QuarantineDao {
+
+    private static final String RECORD_FAILURE = "INSERT INTO quarantined_message " +
+            "(sqs_message_id, resource_external_id, event_type, message_body, error_message, parked) " +
+            "VALUES (:sqsMessageId, :resourceExternalId, :eventType, :messageBody, :errorMessage, 1 >= :maximumAttempts) " +
+            "ON CONFLICT (sqs_message_id) DO UPDATE SET " +
+            "attempts = quarantined_message.attempts + 1, " +
+            "error_message = EXCLUDED.error_message, " +
+            "last_failed_date = now(), " +
+            "parked = quarantined_message.attempts + 1 >= :maximumAttempts " +
+            "RETURNING *";
+
+    private static final String SELECT_PARKED = "SELECT * FROM quarantined_message " +
+            "WHERE parked ORDER BY id LIMIT :limit";
+
+    private static final String SELECT_BY_ID = "SELECT * FROM quarantined_message WHERE id = :id";
+
+    private static final String COUNT_PARKED = "SELECT count(*) FROM quarantined_message WHERE parked";
+
+    private static final String RECORD_FAILED_REPLAY = "UPDATE quarantined_message SET " +
+            "attempts = attempts + 1, error_message = :errorMessage, last_failed_date = now() " +
+            "WHERE id = :id";
+
+    private static final String DELETE_BY_ID = "DELETE FROM quarantined_message WHERE id = :id";
+
+    private static final String DELETE_BY_SQS_MESSAGE_IDS = "DELETE FROM quarantined_message " +
+            "WHERE sqs_message_id IN (<sqsMessageIds>)";
+
+    private final Jdbi jdbi;
+
+    @Inject
+    public QuarantineDao(Jdbi jdbi) {
+        this.jdbi = jdbi;
+    }
+
+    /**
+     * Records a failed attempt at the message, parking it once it has failed the maximum number of attempts.
+     *
+     * @return the quarantined message as it is after the failure has been recorded
+     */
+    public QuarantinedMessage recordFailure(String sqsMessageId, String resourceExternalId, String eventType,
+                                            String messageBody, String errorMessage, int maximumAttempts) {
+        return jdbi.withHandle(handle -> handle.createQuery(RECORD_FAILURE)
+                .bind("sqsMessageId", sqsMessageId)
+                .bind("resourceExternalId", resourceExternalId)
+                .bind("eventType", eventType)
+                .bind("messageBody", messageBody)
+                .bind("errorMessage", errorMessage)
+                .bind("maximumAttempts", maximumAttempts)
+                .map(new QuarantinedMessageMapper())
+                .one());
+    }
+
+    public List<QuarantinedMessage> findParked(int limit) {
+        return jdbi.withHandle(handle -> handle.createQuery(SELECT_PARKED)
+                .bind("limit", limit)
+                .map(new QuarantinedMessageMapper())
+                .list());
+    }
+
+    public Optional<QuarantinedMessage> findById(long id) {
+        return jdbi.withHandle(handle -> handle.createQuery(SELECT_BY_ID)
+                .bind("id", id)
+                .map(new QuarantinedMessageMapper())
+                .findFirst());
+    }
+
+    public long countParked() {
+        return jdbi.withHandle(handle -> handle.createQuery(COUNT_PARKED)
+                .mapTo(Long.class)
+                .one());
+    }
+
+    public void recordFailedReplay(long id, String errorMessage) {
+        jdbi.useHandle(handle -> handle.createUpdate(RECORD_FAILED_REPLAY)
+                .bind("id", id)
+                .bind("errorMessage", errorMessage)
+                .execute());
+    }
+
+    public void delete(long id) {
+        jdbi.useHandle(handle -> handle.createUpdate(DELETE_BY_ID)
+                .bind("id", id)
+                .execute());
+    }
+
+    public void deleteBySqsMessageIds(List<String> sqsMessageIds) {
+        jdbi.useHandle(handle -> handle.createUpdate(DELETE_BY_SQS_MESSAGE_IDS)
+                .bindList("sqsMessageIds", sqsMessageIds)
+                .execute());
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.pay.ledger.quarantine.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.ledger.quarantine.model.QuarantinedMessage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public class QuarantinedMessageMapper implements RowMapper<QuarantinedMessage> {
+
+    @Override
+    public QuarantinedMessage map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return new QuarantinedMessage(
+                rs.getLong("id"),
+                rs.getString("sqs_message_id"),
+                rs.getString("resource_external_id"),
+                rs.getString("event_type"),
+                rs.getString("message_body"),
+                rs.getString("error_message"),
+                rs.getInt("attempts"),
+                rs.getBoolean("parked"),
+                ZonedDateTime.ofInstant(rs.getTimestamp("first_failed_date").toInstant(), ZoneOffset.UTC),
+                ZonedDateTime.ofInstant(rs.getTimestamp("last_failed_date").toInstant(), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,82 @@
+package uk.gov.pay.ledger.quarantine.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import uk.gov.pay.commons.api.json.MicrosecondPrecisionDateTimeSerializer;
+
+import java.time.ZonedDateTime;
+
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class QuarantinedMessage {
+
+    private Long id;
+    private String sqsMessageId;
+    private String resourceExternalId;
+    private String eventType;
+    @JsonIgnore
+    private String messageBody;
+    private String errorMessage;
+    private int attempts;
+    private boolean parked;
+    @JsonSerialize(using = MicrosecondPrecisionDateTimeSerializer.class)
+    private ZonedDateTime firstFailedDate;
+    @JsonSerialize(using = MicrosecondPrecisionDateTimeSerializer.class)
+    private ZonedDateTime lastFailedDate;
+
+    public QuarantinedMessage(Long id, String sqsMessageId, String resourceExternalId, String eventType,
+                              String messageBody, String errorMessage, int attempts, boolean parked,
+                              ZonedDateTime firstFailedDate, ZonedDateTime lastFailedDate) {
+        this.id = id;
+        this.sqsMessageId = sqsMessageId;
+        this.resourceExternalId = resourceExternalId;
+        this.eventType = eventType;
+        this.messageBody = messageBody;
+        this.errorMessage = errorMessage;
+        this.attempts = attempts;
+        this.parked = parked;
+        this.firstFailedDate = firstFailedDate;
+        this.lastFailedDate = lastFailedDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSqsMessageId() {
+        return sqsMessageId;
+    }
+
+    public String getResourceExternalId() {
+        return resourceExternalId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getMessageBody() {
+        return messageBody;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public boolean isParked() {
+        return parked;
+    }
+
+    public ZonedDateTime getFirstFailedDate() {
+        return firstFailedDate;
+    }
+
+    public ZonedDateTime getLastFailedDate() {
+        return lastFailedDate;
+    }
+}
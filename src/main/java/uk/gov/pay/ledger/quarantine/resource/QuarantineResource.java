@@ -0,0 +1,58 @@
+package uk.gov.pay.ledger.quarantine.resource;
+
+import com.codahale.metrics.annotation.Timed;
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.quarantine.model.QuarantinedMessage;
+import uk.gov.pay.ledger.quarantine.service.QuarantineService;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+@Path("/v1/quarantine")
+@Produces(APPLICATION_JSON)
+public class QuarantineResource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuarantineResource.class);
+    private final QuarantineService quarantineService;
+
+    @Inject
+    public QuarantineResource(QuarantineService quarantineService) {
+        this.quarantineService = quarantineService;
+    }
+
+    @GET
+    @Timed
+    public List<QuarantinedMessage> getParkedMessages(@Min(1) @Max(1000) @DefaultValue("100") @QueryParam("limit") int limit) {
+        return quarantineService.findParkedMessages(limit);
+    }
+
+    @Path("/{quarantinedMessageId}/replay")
+    @POST
+    @Timed
+    public Response replayParkedMessage(@PathParam("quarantinedMessageId") Long quarantinedMessageId) {
+        LOGGER.info("Replay quarantined message request: {}", quarantinedMessageId);
+        QuarantinedMessage quarantinedMessage = quarantineService.findParkedMessage(quarantinedMessageId)
+                .orElseThrow(() -> new WebApplicationException(Response.Status.NOT_FOUND));
+
+        if (quarantineService.replay(quarantinedMessage)) {
+            return Response.noContent().build();
+        }
+        return Response.status(Response.Status.CONFLICT)
+                .entity(quarantineService.findParkedMessage(quarantinedMessageId).orElse(quarantinedMessage))
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package uk.gov.pay.ledger.quarantine.service;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
+import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.quarantine.dao.QuarantineDao;
+import uk.gov.pay.ledger.quarantine.model.QuarantinedMessage;
+import uk.gov.pay.ledger.queue.EventDigestHandler;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageDto;
+import uk.gov.pay.ledger.queue.IngestUnitOfWork;
+import uk.gov.pay.ledger.queue.QueueMessage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Records the failed attempts at ingesting each message. Once a message has failed the configured maximum number of
+ * attempts it is parked, so that it can be acknowledged instead of being retried forever, and it stays parked until
+ * it is replayed.
+ */
+@Singleton
+public class QuarantineService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuarantineService.class);
+
+    private final QuarantineDao quarantineDao;
+    private final EventService eventService;
+    private final EventDigestHandler eventDigestHandler;
+    private final IngestUnitOfWork ingestUnitOfWork;
+    private final ObjectMapper objectMapper;
+    private final int maximumAttempts;
+
+    private final Counter failures;
+    private final Counter parked;
+    private final Counter replayed;
+    private final Counter replayFailures;
+
+    @Inject
+    public QuarantineService(QuarantineDao quarantineDao, EventService eventService, EventDigestHandler eventDigestHandler,
+                             IngestUnitOfWork ingestUnitOfWork, ObjectMapper objectMapper, LedgerConfig configuration,
+                             MetricRegistry metricRegistry) {
+        this.quarantineDao = quarantineDao;
+        this.eventService = eventService;
+        this.eventDigestHandler = eventDigestHandler;
+        this.ingestUnitOfWork = ingestUnitOfWork;
+        this.objectMapper = objectMapper;
+        this.maximumAttempts = configuration.getQueueMessageReceiverConfig().getMessageMaximumAttempts();
+
+        this.failures = metricRegistry.counter("ingest.quarantine.failures");
+        this.parked = metricRegistry.counter("ingest.quarantine.parked");
+        this.replayed = metricRegistry.counter("ingest.quarantine.replayed");
+        this.replayFailures = metricRegistry.counter("ingest.quarantine.replay-failures");
+        metricRegistry.register("ingest.quarantine.parked-messages", new CachedGauge<Long>(1, TimeUnit.MINUTES) {
+            @Override
+            protected Long loadValue() {
+                return quarantineDao.countParked();
+            }
+        });
+    }
+
+    /**
+     * @return true if the message has now failed the maximum number of attempts and has been parked, in which case
+     * it should be acknowledged rather than retried
+     */
+    public boolean recordFailure(EventMessage message, String errorMessage) {
+        if (maximumAttempts == 0) {
+            return false;
+        }
+
+        try {
+            Event event = message.getEvent();
+            QuarantinedMessage quarantinedMessage = quarantineDao.recordFailure(message.getQueueMessageId(),
+                    event.getResourceExternalId(), event.getEventType(), message.getQueueMessageBody(),
+                    errorMessage, maximumAttempts);
+            failures.inc();
+
+            if (quarantinedMessage.isParked()) {
+                parked.inc();
+                LOGGER.warn("The event message has failed the maximum number of attempts and has been quarantined.",
+                        kv("id", message.getId()),
+                        kv("quarantined_message_id", quarantinedMessage.getId()),
+                        kv("resource_external_id", event.getResourceExternalId()),
+                        kv("attempts", quarantinedMessage.getAttempts()),
+                        kv("error", errorMessage));
+                return true;
+            }
+
+            return false;
+        } catch (Exception e) {
+            LOGGER.error("Failed to record failed attempt at event message. [id={}] [errorMessage={}]",
+                    message.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Removes the records of earlier failed attempts at messages that have now been processed, in one statement for
+     * the batch. The records are removed by message id whichever instance recorded the failures.
+     */
+    public void recordSuccesses(List<EventMessage> messages) {
+        if (maximumAttempts == 0 || messages.isEmpty()) {
+            return;
+        }
+
+        List<String> sqsMessageIds = messages.stream()
+                .map(EventMessage::getQueueMessageId)
+                .collect(Collectors.toList());
+        try {
+            quarantineDao.deleteBySqsMessageIds(sqsMessageIds);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to remove record of failed attempts at event messages. [messages={}] [errorMessage={}]",
+                    sqsMessageIds.size(), e.getMessage());
+        }
+    }
+
+    public List<QuarantinedMessage> findParkedMessages(int limit) {
+        return quarantineDao.findParked(limit);
+    }
+
+    public Optional<QuarantinedMessage> findParkedMessage(long id) {
+        return quarantineDao.findById(id)
+                .filter(QuarantinedMessage::isParked);
+    }
+
+    /**
+     * Stores and projects the event of a parked message again. The message is released from quarantine if this
+     * succeeds; otherwise the failure is recorded against it and it stays parked.
+     *
+     * @return true if the message was replayed successfully
+     */
+    public boolean replay(QuarantinedMessage quarantinedMessage) {
+        try {
+            EventMessageDto eventDto = objectMapper.readValue(quarantinedMessage.getMessageBody(), EventMessageDto.class);
+            Event event = EventMessage.of(eventDto, QueueMessage.of(quarantinedMessage.getSqsMessageId(), null,
+                    quarantinedMessage.getMessageBody())).getEvent();
+
+            CreateEventResponse response = eventService.createIfDoesNotExist(event);
+            if (!response.isSuccessful()) {
+                throw new IllegalStateException(response.getErrorMessage());
+            }
+            eventDigestHandler.resolveReferenceData(List.of(event));
+            ingestUnitOfWork.run(() -> eventDigestHandler.processEvents(List.of(event)));
+
+            quarantineDao.delete(quarantinedMessage.getId());
+            replayed.inc();
+            LOGGER.info("Quarantined event message replayed.",
+                    kv("quarantined_message_id", quarantinedMessage.getId()),
+                    kv("resource_external_id", event.getResourceExternalId()));
+            return true;
+        } catch (Exception e) {
+            quarantineDao.recordFailedReplay(quarantinedMessage.getId(), e.getMessage());
+            replayFailures.inc();
+            LOGGER.warn("Failed to replay quarantined event message. [quarantinedMessageId={}] [errorMessage={}]",
+                    quarantinedMessage.getId(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -14,6 +14,8 @@ import uk.gov.pay.ledger.queue.eventprocessor.RefundEventProcessor;
 import uk.gov.pay.ledger.transaction.service.TransactionMetadataService;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 
+import java.util.List;
+
 public class EventDigestHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventDigestHandler.class);
@@ -21,16 +23,20 @@ public class EventDigestHandler {
     private PaymentEventProcessor paymentEventProcessor;
     private PayoutEventProcessor payoutEventProcessor;
     private RefundEventProcessor refundEventProcessor;
+    private TransactionMetadataService transactionMetadataService;
 
     @Inject
     public EventDigestHandler(EventService eventService,
                               TransactionService transactionService,
                               TransactionMetadataService transactionMetadataService,
                               PayoutService payoutService,
-                              TransactionEntityFactory transactionEntityFactory) {
-        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory);
-        paymentEventProcessor = new PaymentEventProcessor(eventService, transactionService, transactionMetadataService, refundEventProcessor);
-        payoutEventProcessor = new PayoutEventProcessor(eventService, payoutService);
+                              TransactionEntityFactory transactionEntityFactory,
+                              IngestMetrics ingestMetrics) {
+        this.transactionMetadataService = transactionMetadataService;
+        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory, ingestMetrics);
+        paymentEventProcessor = new PaymentEventProcessor(eventService, transactionService, transactionMetadataService,
+                refundEventProcessor, ingestMetrics);
+        payoutEventProcessor = new PayoutEventProcessor(eventService, payoutService, ingestMetrics);
     }
 
     public EventProcessor processorFor(Event event) {
@@ -54,4 +60,16 @@ public class EventDigestHandler {
     public void processEvent(Event event) {
         processorFor(event).process(event);
     }
+
+    /**
+     * Resolves the reference data the events need before the unit of work that projects them is opened, so that
+     * the projection does not insert it on the unit's connection.
+     */
+    public void resolveReferenceData(List<Event> eventsForResource) {
+        transactionMetadataService.resolveMetadataKeysFor(eventsForResource);
+    }
+
+    public void processEvents(List<Event> eventsForResource) {
+        processorFor(eventsForResource.get(0)).process(eventsForResource);
+    }
 }
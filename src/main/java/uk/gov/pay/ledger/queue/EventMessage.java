@@ -1,20 +1,32 @@
 package uk.gov.pay.ledger.queue;
 
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
 import uk.gov.pay.ledger.event.model.Event;
 
 public class EventMessage {
     private EventMessageDto eventDto;
     private QueueMessage queueMessage;
+    private EventQueueConfig eventQueue;
+    private Event event;
 
     public EventMessage(EventMessageDto eventDto, QueueMessage queueMessage) {
         this.eventDto = eventDto;
         this.queueMessage = queueMessage;
     }
 
+    public EventMessage(EventMessageDto eventDto, QueueMessage queueMessage, EventQueueConfig eventQueue) {
+        this(eventDto, queueMessage);
+        this.eventQueue = eventQueue;
+    }
+
     public static EventMessage of(EventMessageDto eventDto, QueueMessage queueMessage) {
         return new EventMessage(eventDto, queueMessage);
     }
 
+    public static EventMessage of(EventMessageDto eventDto, QueueMessage queueMessage, EventQueueConfig eventQueue) {
+        return new EventMessage(eventDto, queueMessage, eventQueue);
+    }
+
     public String getId() {
         return eventDto.getExternalId();
     }
@@ -23,19 +35,37 @@ public class EventMessage {
         return queueMessage.getMessageId();
     }
 
+    /**
+     * The event is built once, with its data already parsed from the message, and shared by every stage of ingest.
+     */
     public Event getEvent() {
-        return new Event(
-                getQueueMessageId(),
-                eventDto.getResourceType(),
-                eventDto.getExternalId(),
-                eventDto.getParentExternalId(),
-                eventDto.getEventDate(),
-                eventDto.getEventType(),
-                eventDto.getEventData()
-        );
+        if (event == null) {
+            event = new Event(
+                    getQueueMessageId(),
+                    eventDto.getResourceType(),
+                    eventDto.getExternalId(),
+                    eventDto.getParentExternalId(),
+                    eventDto.getEventDate(),
+                    eventDto.getEventType(),
+                    eventDto.getEventData(),
+                    eventDto.getEventDataMap()
+            );
+        }
+        return event;
     }
 
     public String getQueueMessageReceiptHandle() {
         return queueMessage.getReceiptHandle();
     }
+
+    public String getQueueMessageBody() {
+        return queueMessage.getMessageBody();
+    }
+
+    /**
+     * @return the queue the message was received from, or null if it was not received from a queue
+     */
+    public EventQueueConfig getEventQueue() {
+        return eventQueue;
+    }
 }
@@ -0,0 +1,113 @@
+package uk.gov.pay.ledger.queue;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static uk.gov.pay.ledger.queue.sqs.SqsQueueService.MAXIMUM_BATCH_REQUEST_ENTRIES;
+
+/**
+ * Collects the outcome of handled messages and acknowledges (deletes) or defers them on the queue in batches.
+ * Pending messages are sent when a full SQS batch has built up, when the oldest pending message has waited longer
+ * than the configured maximum delay, or when {@link #flush()} is called at the end of a unit of work.
+ */
+@Singleton
+public class EventMessageAcknowledger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventMessageAcknowledger.class);
+
+    private final EventQueue eventQueue;
+    private final Duration maximumDelay;
+    private final Clock clock;
+
+    private List<EventMessage> processedMessages = new ArrayList<>();
+    private List<EventMessage> messagesToRetry = new ArrayList<>();
+    private Instant oldestPendingSince;
+
+    @Inject
+    public EventMessageAcknowledger(EventQueue eventQueue, LedgerConfig configuration) {
+        this(eventQueue, configuration, Clock.systemUTC());
+    }
+
+    EventMessageAcknowledger(EventQueue eventQueue, LedgerConfig configuration, Clock clock) {
+        this.eventQueue = eventQueue;
+        this.maximumDelay = Duration.ofMillis(configuration.getQueueMessageReceiverConfig().getMessageAcknowledgementMaxDelayInMilliseconds());
+        this.clock = clock;
+    }
+
+    public void markMessageAsProcessed(EventMessage message) {
+        add(message, true);
+    }
+
+    public void scheduleMessageForRetry(EventMessage message) {
+        add(message, false);
+    }
+
+    /**
+     * The message is neither deleted nor deferred; it is redelivered once its visibility timeout expires.
+     */
+    public void releaseMessage(EventMessage message) {
+        eventQueue.releaseMessage(message);
+    }
+
+    public void flushIfDue() {
+        boolean due;
+        synchronized (this) {
+            due = maximumDelayElapsed();
+        }
+        if (due) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        List<EventMessage> messagesToDelete;
+        List<EventMessage> messagesToDefer;
+        synchronized (this) {
+            messagesToDelete = processedMessages;
+            messagesToDefer = messagesToRetry;
+            processedMessages = new ArrayList<>();
+            messagesToRetry = new ArrayList<>();
+            oldestPendingSince = null;
+        }
+
+        if (!messagesToDelete.isEmpty()) {
+            eventQueue.markMessagesAsProcessed(messagesToDelete)
+                    .forEach(message -> LOGGER.warn("Failed to mark event message as processed, it will be redelivered. [id={}] [queueMessageId={}]",
+                            message.getId(), message.getQueueMessageId()));
+        }
+        if (!messagesToDefer.isEmpty()) {
+            eventQueue.scheduleMessagesForRetry(messagesToDefer)
+                    .forEach(message -> LOGGER.warn("Failed to schedule event message for retry, it will be redelivered after its visibility timeout. [id={}] [queueMessageId={}]",
+                            message.getId(), message.getQueueMessageId()));
+        }
+    }
+
+    private void add(EventMessage message, boolean processed) {
+        boolean thresholdReached;
+        synchronized (this) {
+            if (oldestPendingSince == null) {
+                oldestPendingSince = clock.instant();
+            }
+            List<EventMessage> pending = processed ? processedMessages : messagesToRetry;
+            pending.add(message);
+            thresholdReached = pending.size() >= MAXIMUM_BATCH_REQUEST_ENTRIES || maximumDelayElapsed();
+        }
+        if (thresholdReached) {
+            flush();
+        }
+    }
+
+    private boolean maximumDelayElapsed() {
+        return oldestPendingSince != null &&
+                !oldestPendingSince.plus(maximumDelay).isAfter(clock.instant());
+    }
+}
@@ -1,13 +1,16 @@
 package uk.gov.pay.ledger.queue;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import uk.gov.pay.commons.api.json.MicrosecondPrecisionDateTimeDeserializer;
 import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.util.JsonParser;
 
 import java.time.ZonedDateTime;
+import java.util.Map;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class EventMessageDto {
@@ -47,6 +50,11 @@ public class EventMessageDto {
         return eventData.toString();
     }
 
+    @JsonIgnore
+    public Map<String, Object> getEventDataMap() {
+        return JsonParser.jsonNodeToMap(eventData);
+    }
+
     public String getExternalId() {
         return externalId;
     }
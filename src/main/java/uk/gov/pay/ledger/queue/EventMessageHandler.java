@@ -5,75 +5,170 @@ import com.google.inject.Inject;
 import io.sentry.Sentry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.quarantine.service.QuarantineService;
 
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
 
 public class EventMessageHandler {
 
+    public static final String INGEST_LAG_HISTOGRAM_NAME = "event-message-handler.ingest-lag-microseconds";
     private static final Logger LOGGER = LoggerFactory.getLogger(EventMessageHandler.class);
 
-    private final EventQueue eventQueue;
+    private final EventMessageAcknowledger eventMessageAcknowledger;
     private final EventService eventService;
     private final EventDigestHandler eventDigestHandler;
+    private final ProcessedEventKeys processedEventKeys;
+    private final IngestUnitOfWork ingestUnitOfWork;
+    private final IngestMetrics ingestMetrics;
+    private final QuarantineService quarantineService;
     private final MetricRegistry metricRegistry;
 
     @Inject
-    public EventMessageHandler(EventQueue eventQueue,
+    public EventMessageHandler(EventMessageAcknowledger eventMessageAcknowledger,
                                EventService eventService,
                                EventDigestHandler eventDigestHandler,
+                               ProcessedEventKeys processedEventKeys,
+                               IngestUnitOfWork ingestUnitOfWork,
+                               IngestMetrics ingestMetrics,
+                               QuarantineService quarantineService,
                                MetricRegistry metricRegistry) {
-        this.eventQueue = eventQueue;
+        this.eventMessageAcknowledger = eventMessageAcknowledger;
         this.eventService = eventService;
         this.eventDigestHandler = eventDigestHandler;
+        this.processedEventKeys = processedEventKeys;
+        this.ingestUnitOfWork = ingestUnitOfWork;
+        this.ingestMetrics = ingestMetrics;
+        this.quarantineService = quarantineService;
         this.metricRegistry = metricRegistry;
     }
 
-    public void handle() throws QueueException {
-        List<EventMessage> eventMessages = eventQueue.retrieveEvents();
+    public static String ingestLagHistogramNameFor(EventQueueConfig eventQueue) {
+        return "event-message-handler." + eventQueue.getName() + ".ingest-lag-microseconds";
+    }
+
+    /**
+     * Stores every event in the batch, then projects each distinct resource once, however many of its events the
+     * batch holds. Each resource is projected in its own unit of work, on one connection and in one database
+     * transaction. A message is acknowledged only once the projection of its resource has been committed.
+     */
+    public void handle(List<EventMessage> receivedEventMessages) {
+        List<EventMessage> eventMessages = new ArrayList<>();
+        for (EventMessage message : receivedEventMessages) {
+            if (processedEventKeys.contains(message.getEvent())) {
+                eventMessageAcknowledger.markMessageAsProcessed(message);
+                ingestMetrics.markDuplicate();
+                LOGGER.info("The event message is a redelivery of an event that has already been processed.",
+                        kv("id", message.getId()),
+                        kv("resource_external_id", message.getEvent().getResourceExternalId()));
+            } else {
+                eventMessages.add(message);
+            }
+        }
+
+        List<Event> events = eventMessages.stream()
+                .map(EventMessage::getEvent)
+                .collect(Collectors.toList());
+        List<CreateEventResponse> responses = ingestMetrics.time(IngestMetrics.Stage.EVENT_INSERT,
+                () -> eventService.createAllIfDoesNotExist(events));
 
-        for (EventMessage message : eventMessages) {
-            try {
-                processSingleMessage(message);
-            } catch (Exception e) {
-                Sentry.capture(e);
+        Map<String, List<EventMessage>> messagesByResource = new LinkedHashMap<>();
+        Map<EventMessage, CreateEventResponse> responsesByMessage = new HashMap<>();
+        for (int i = 0; i < eventMessages.size(); i++) {
+            EventMessage message = eventMessages.get(i);
+            CreateEventResponse response = responses.get(i);
+            if (response.isSuccessful()) {
+                responsesByMessage.put(message, response);
+                messagesByResource.computeIfAbsent(resourceKey(message.getEvent()), key -> new ArrayList<>()).add(message);
+            } else {
+                scheduleMessageForRetry(message, response);
+            }
+        }
+
+        List<EventMessage> processedMessages = new ArrayList<>();
+        messagesByResource.values()
+                .forEach(messages -> processedMessages.addAll(processMessagesForResource(messages, responsesByMessage)));
+
+        quarantineService.recordSuccesses(processedMessages);
+        eventMessageAcknowledger.flush();
+    }
+
+    private List<EventMessage> processMessagesForResource(List<EventMessage> messages,
+                                                          Map<EventMessage, CreateEventResponse> responsesByMessage) {
+        try {
+            List<Event> events = messages.stream()
+                    .map(EventMessage::getEvent)
+                    .collect(Collectors.toList());
+            eventDigestHandler.resolveReferenceData(events);
+            ingestMetrics.time(IngestMetrics.Stage.PROJECTION,
+                    () -> ingestUnitOfWork.run(() -> eventDigestHandler.processEvents(events)));
+        } catch (Exception e) {
+            Sentry.capture(e);
+            ingestMetrics.markFailure();
+            messages.forEach(message -> {
                 LOGGER.warn("Error during handling the event message. [id={}] [queueMessageId={}] [errorMessage={}]",
                         message.getId(),
                         message.getQueueMessageId(),
                         e.getMessage()
                 );
-            }
+                if (quarantineService.recordFailure(message, e.getMessage())) {
+                    eventMessageAcknowledger.markMessageAsProcessed(message);
+                } else {
+                    eventMessageAcknowledger.releaseMessage(message);
+                }
+            });
+            return List.of();
         }
+
+        messages.forEach(message -> markMessageAsProcessed(message, responsesByMessage.get(message)));
+        return messages;
     }
 
-    private void processSingleMessage(EventMessage message) throws QueueException {
+    private void markMessageAsProcessed(EventMessage message, CreateEventResponse response) {
         Event event = message.getEvent();
-        CreateEventResponse response = eventService.createIfDoesNotExist(event);
-
         final long ingestLag = event.getEventDate().until(ZonedDateTime.now(), ChronoUnit.MICROS);
 
-        if(response.isSuccessful()) {
-            eventDigestHandler.processEvent(event);
-            eventQueue.markMessageAsProcessed(message);
-            metricRegistry.histogram("event-message-handler.ingest-lag-microseconds").update(ingestLag);
-            LOGGER.info("The event message has been processed.",
-                    kv("id", message.getId()),
-                    kv("resource_external_id", message.getEvent().getResourceExternalId()),
-                    kv("state", response.getState()),
-                    kv("ingest_lag_micro_seconds", ingestLag));
-        } else {
-            eventQueue.scheduleMessageForRetry(message);
-            LOGGER.warn("The event message has been scheduled for retry.",
-                    kv("id", message.getId()),
-                    kv("resource_external_id", message.getEvent().getResourceExternalId()),
-                    kv("state", response.getState()),
-                    kv("error", response.getErrorMessage()));
+        processedEventKeys.add(event);
+        eventMessageAcknowledger.markMessageAsProcessed(message);
+        ingestMetrics.markIngested(event);
+        metricRegistry.histogram(INGEST_LAG_HISTOGRAM_NAME).update(ingestLag);
+        if (message.getEventQueue() != null) {
+            metricRegistry.histogram(ingestLagHistogramNameFor(message.getEventQueue())).update(ingestLag);
         }
+        LOGGER.info("The event message has been processed.",
+                kv("id", message.getId()),
+                kv("resource_external_id", event.getResourceExternalId()),
+                kv("state", response.getState()),
+                kv("ingest_lag_micro_seconds", ingestLag));
+    }
+
+    private void scheduleMessageForRetry(EventMessage message, CreateEventResponse response) {
+        if (quarantineService.recordFailure(message, response.getErrorMessage())) {
+            eventMessageAcknowledger.markMessageAsProcessed(message);
+            return;
+        }
+        eventMessageAcknowledger.scheduleMessageForRetry(message);
+        ingestMetrics.markRetry();
+        LOGGER.warn("The event message has been scheduled for retry.",
+                kv("id", message.getId()),
+                kv("resource_external_id", message.getEvent().getResourceExternalId()),
+                kv("state", response.getState()),
+                kv("error", response.getErrorMessage()));
+    }
+
+    private static String resourceKey(Event event) {
+        return event.getResourceType() + "|" + event.getResourceExternalId();
     }
 }
@@ -5,55 +5,170 @@ import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.ledger.app.LedgerConfig;
-import uk.gov.pay.ledger.queue.sqs.SqsQueueService;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.queue.sqs.SqsMessageVisibilityHeartbeat;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * The queues that events are received from: the event queue and any additional event queues. Messages are
+ * acknowledged on the queue they were received from.
+ */
 public class EventQueue {
 
+    public static final String EVENT_QUEUE_NAME = "event";
     private static final String EVENT_MESSAGE_ATTRIBUTE_NAME = "All";
     private static final Logger LOGGER = LoggerFactory.getLogger(EventQueue.class);
 
-    private SqsQueueService sqsQueueService;
-    private final String eventQueueUrl;
+    private QueueService queueService;
+    private SqsMessageVisibilityHeartbeat visibilityHeartbeat;
+    private IngestMetrics ingestMetrics;
+    private final EventQueueConfig eventQueue;
+    private final List<EventQueueConfig> eventQueues;
     private ObjectMapper objectMapper;
     private int retryDelayInSeconds;
 
     @Inject
-    public EventQueue(SqsQueueService sqsQueueService, LedgerConfig configuration, ObjectMapper objectMapper) {
-        this.sqsQueueService = sqsQueueService;
-        this.eventQueueUrl = configuration.getSqsConfig().getEventQueueUrl();
+    public EventQueue(QueueService queueService, SqsMessageVisibilityHeartbeat visibilityHeartbeat,
+                      IngestMetrics ingestMetrics, LedgerConfig configuration, ObjectMapper objectMapper) {
+        this.queueService = queueService;
+        this.visibilityHeartbeat = visibilityHeartbeat;
+        this.ingestMetrics = ingestMetrics;
+        this.eventQueue = new EventQueueConfig(EVENT_QUEUE_NAME, configuration.getSqsConfig().getEventQueueUrl(),
+                configuration.getSqsConfig().getEventQueueWeight(), true);
+        List<EventQueueConfig> queues = new ArrayList<>();
+        queues.add(eventQueue);
+        queues.addAll(configuration.getSqsConfig().getAdditionalEventQueues());
+        this.eventQueues = List.copyOf(queues);
         this.objectMapper = objectMapper;
         this.retryDelayInSeconds = configuration.getQueueMessageReceiverConfig().getMessageRetryDelayInSeconds();
     }
 
+    public List<EventQueueConfig> getEventQueues() {
+        return eventQueues;
+    }
+
     public List<EventMessage> retrieveEvents() throws QueueException {
-        List<QueueMessage> queueMessages = sqsQueueService
-                .receiveMessages(this.eventQueueUrl, EVENT_MESSAGE_ATTRIBUTE_NAME);
+        return retrieveEvents(eventQueue);
+    }
+
+    public List<EventMessage> retrieveEvents(EventQueueConfig queue) throws QueueException {
+        List<QueueMessage> queueMessages = queueService.receiveMessages(queue.getUrl(), EVENT_MESSAGE_ATTRIBUTE_NAME);
+        ingestMetrics.markBatchReceived(queueMessages.size());
 
-        return queueMessages
+        List<EventMessage> eventMessages = ingestMetrics.time(IngestMetrics.Stage.PARSE, () -> queueMessages
                 .stream()
-                .map(this::getMessage)
+                .map(queueMessage -> getMessage(queueMessage, queue))
                 .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+        visibilityHeartbeat.track(queue.getUrl(), receiptHandlesFor(eventMessages));
+
+        return eventMessages;
+    }
+
+    /**
+     * @return the approximate number of messages waiting across all of the event queues
+     */
+    public long getApproximateNumberOfMessages() throws QueueException {
+        long approximateNumberOfMessages = 0;
+        for (EventQueueConfig queue : eventQueues) {
+            approximateNumberOfMessages += queueService.getApproximateNumberOfMessages(queue.getUrl());
+        }
+        return approximateNumberOfMessages;
     }
 
     public void markMessageAsProcessed(EventMessage message) throws QueueException {
-        sqsQueueService.deleteMessage(this.eventQueueUrl, message.getQueueMessageReceiptHandle());
+        visibilityHeartbeat.untrack(List.of(message.getQueueMessageReceiptHandle()));
+        queueService.deleteMessage(queueUrlFor(message), message.getQueueMessageReceiptHandle());
     }
 
     public void scheduleMessageForRetry(EventMessage message) throws QueueException {
-        sqsQueueService.deferMessage(this.eventQueueUrl, message.getQueueMessageReceiptHandle(), retryDelayInSeconds);
+        visibilityHeartbeat.untrack(List.of(message.getQueueMessageReceiptHandle()));
+        queueService.deferMessage(queueUrlFor(message), message.getQueueMessageReceiptHandle(), retryDelayInSeconds);
+    }
+
+    /**
+     * Stops extending the visibility of a message that will not be acknowledged, so it is redelivered once its
+     * current visibility timeout expires.
+     */
+    public void releaseMessage(EventMessage message) {
+        visibilityHeartbeat.untrack(List.of(message.getQueueMessageReceiptHandle()));
+    }
+
+    /**
+     * @return the messages that could not be deleted from the queue
+     */
+    public List<EventMessage> markMessagesAsProcessed(List<EventMessage> messages) {
+        visibilityHeartbeat.untrack(receiptHandlesFor(messages));
+        List<String> failedReceiptHandles = new ArrayList<>();
+        messagesByQueueUrl(messages).forEach((queueUrl, queueMessages) ->
+                failedReceiptHandles.addAll(queueService.deleteMessages(queueUrl, receiptHandlesFor(queueMessages))));
+        return messagesWithReceiptHandles(messages, failedReceiptHandles);
+    }
+
+    /**
+     * @return the messages whose visibility could not be changed
+     */
+    public List<EventMessage> scheduleMessagesForRetry(List<EventMessage> messages) {
+        visibilityHeartbeat.untrack(receiptHandlesFor(messages));
+        List<String> failedReceiptHandles = new ArrayList<>();
+        messagesByQueueUrl(messages).forEach((queueUrl, queueMessages) ->
+                failedReceiptHandles.addAll(queueService.deferMessages(queueUrl, receiptHandlesFor(queueMessages), retryDelayInSeconds)));
+        return messagesWithReceiptHandles(messages, failedReceiptHandles);
+    }
+
+    /**
+     * Makes messages that will not be processed by this instance visible on the queue again straight away, so another
+     * receiver can take them without waiting for their visibility timeout to expire.
+     *
+     * @return the messages that could not be handed back
+     */
+    public List<EventMessage> handBackMessages(List<EventMessage> messages) {
+        visibilityHeartbeat.untrack(receiptHandlesFor(messages));
+        List<String> failedReceiptHandles = new ArrayList<>();
+        messagesByQueueUrl(messages).forEach((queueUrl, queueMessages) ->
+                failedReceiptHandles.addAll(queueService.deferMessages(queueUrl, receiptHandlesFor(queueMessages), 0)));
+        return messagesWithReceiptHandles(messages, failedReceiptHandles);
+    }
+
+    private String queueUrlFor(EventMessage message) {
+        EventQueueConfig queue = message.getEventQueue();
+        return queue == null ? eventQueue.getUrl() : queue.getUrl();
+    }
+
+    private Map<String, List<EventMessage>> messagesByQueueUrl(List<EventMessage> messages) {
+        return messages.stream()
+                .collect(Collectors.groupingBy(this::queueUrlFor, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    private List<String> receiptHandlesFor(List<EventMessage> messages) {
+        return messages.stream()
+                .map(EventMessage::getQueueMessageReceiptHandle)
+                .collect(Collectors.toList());
+    }
+
+    private List<EventMessage> messagesWithReceiptHandles(List<EventMessage> messages, List<String> receiptHandles) {
+        if (receiptHandles.isEmpty()) {
+            return List.of();
+        }
+        Set<String> receiptHandleSet = Set.copyOf(receiptHandles);
+        return messages.stream()
+                .filter(message -> receiptHandleSet.contains(message.getQueueMessageReceiptHandle()))
+                .collect(Collectors.toList());
     }
 
-    private EventMessage getMessage(QueueMessage queueMessage) {
+    private EventMessage getMessage(QueueMessage queueMessage, EventQueueConfig queue) {
         try {
             EventMessageDto eventDto = objectMapper.readValue(queueMessage.getMessageBody(), EventMessageDto.class);
 
-            return EventMessage.of(eventDto, queueMessage);
+            return EventMessage.of(eventDto, queueMessage, queue);
         } catch (IOException e) {
             LOGGER.warn(
                     "There was an exception parsing message [messageId={}] into an [{}]",
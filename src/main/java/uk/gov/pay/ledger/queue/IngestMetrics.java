@@ -0,0 +1,92 @@
+package uk.gov.pay.ledger.queue;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import uk.gov.pay.ledger.event.model.Event;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Timers for each stage of ingesting events from the queue, with counters of the events ingested by resource type
+ * and event type, meters of duplicate, retried and failed messages and a histogram of the received batch sizes.
+ */
+@Singleton
+public class IngestMetrics {
+
+    public enum Stage {
+        RECEIVE,
+        PARSE,
+        EVENT_INSERT,
+        PROJECTION,
+        EVENT_DIGEST,
+        TRANSACTION_UPSERT,
+        PAYOUT_UPSERT,
+        METADATA_UPSERT,
+        REFUND_REPROJECTION,
+        ACKNOWLEDGE,
+        VISIBILITY_CHANGE;
+
+        private String metricName() {
+            return "ingest.stage." + name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+        }
+    }
+
+    private final MetricRegistry metricRegistry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Histogram batchSize;
+    private final Meter duplicates;
+    private final Meter retries;
+    private final Meter failures;
+
+    @Inject
+    public IngestMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, metricRegistry.timer(stage.metricName()));
+        }
+        this.batchSize = metricRegistry.histogram("ingest.batch-size");
+        this.duplicates = metricRegistry.meter("ingest.duplicates");
+        this.retries = metricRegistry.meter("ingest.retries");
+        this.failures = metricRegistry.meter("ingest.failures");
+    }
+
+    public <T> T time(Stage stage, Supplier<T> work) {
+        try (Timer.Context ignored = stageTimers.get(stage).time()) {
+            return work.get();
+        }
+    }
+
+    public void time(Stage stage, Runnable work) {
+        try (Timer.Context ignored = stageTimers.get(stage).time()) {
+            work.run();
+        }
+    }
+
+    public void markIngested(Event event) {
+        metricRegistry.counter("ingest.events.resource-type." + event.getResourceType()).inc();
+        metricRegistry.counter("ingest.events.event-type." + event.getEventType()).inc();
+    }
+
+    public void markBatchReceived(int numberOfMessages) {
+        batchSize.update(numberOfMessages);
+    }
+
+    public void markDuplicate() {
+        duplicates.mark();
+    }
+
+    public void markRetry() {
+        retries.mark();
+    }
+
+    public void markFailure() {
+        failures.mark();
+    }
+}
@@ -0,0 +1,33 @@
+package uk.gov.pay.ledger.queue;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Runs the projection of ingested events on a single handle inside a single database transaction. Jdbi hands the
+ * handle that is open on the current thread to every nested {@code withHandle} and on-demand DAO call, so all of the
+ * reads and writes of the work share one pooled connection and are committed or rolled back together.
+ */
+public class IngestUnitOfWork {
+
+    private final Jdbi jdbi;
+    private final Timer duration;
+    private final Counter rollbacks;
+
+    public IngestUnitOfWork(Jdbi jdbi, MetricRegistry metricRegistry) {
+        this.jdbi = jdbi;
+        this.duration = metricRegistry.timer("ingest-unit-of-work.duration");
+        this.rollbacks = metricRegistry.counter("ingest-unit-of-work.rollbacks");
+    }
+
+    public void run(Runnable work) {
+        try (Timer.Context ignored = duration.time()) {
+            jdbi.useTransaction(handle -> work.run());
+        } catch (RuntimeException e) {
+            rollbacks.inc();
+            throw e;
+        }
+    }
+}
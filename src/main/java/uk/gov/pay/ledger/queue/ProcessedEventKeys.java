@@ -0,0 +1,49 @@
+package uk.gov.pay.ledger.queue;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.event.model.Event;
+
+/**
+ * Bounded LRU of the keys of events this instance has recently stored and projected, used to acknowledge SQS
+ * redeliveries of those events without another round trip to the database. Lookups are exact: an event is only
+ * skipped if it really has been processed, as a false positive would lose the event.
+ */
+@Singleton
+public class ProcessedEventKeys {
+
+    private final Cache<String, Boolean> keys;
+
+    @Inject
+    public ProcessedEventKeys(LedgerConfig configuration) {
+        this(configuration.getQueueMessageReceiverConfig().getProcessedEventKeysMaximumSize());
+    }
+
+    ProcessedEventKeys(long maximumSize) {
+        this.keys = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public boolean contains(Event event) {
+        return keys.getIfPresent(keyFor(event)) != null;
+    }
+
+    public void add(Event event) {
+        keys.put(keyFor(event), Boolean.TRUE);
+    }
+
+    /**
+     * Mirrors the unique key on the event table.
+     */
+    static String keyFor(Event event) {
+        return String.join("|",
+                String.valueOf(event.getResourceType()),
+                event.getResourceExternalId(),
+                String.valueOf(event.getEventDate().toInstant()),
+                event.getEventType());
+    }
+}
@@ -34,6 +34,10 @@ public class QueueMessage {
         return new QueueMessage(messageResult.getMessageId(), validJsonMessage);
     }
 
+    public static QueueMessage of(String messageId, String receiptHandle, String messageBody) {
+        return new QueueMessage(messageId, receiptHandle, messageBody);
+    }
+
     public String getMessageId() {
         return messageId;
     }
@@ -0,0 +1,28 @@
+package uk.gov.pay.ledger.queue;
+
+import java.util.List;
+
+/**
+ * A source of queue messages with SQS semantics: a received message stays invisible to other receivers until its
+ * visibility timeout expires, and is removed only when it is deleted using the receipt handle it was received with.
+ */
+public interface QueueService {
+
+    List<QueueMessage> receiveMessages(String queueUrl, String messageAttributeName) throws QueueException;
+
+    void deleteMessage(String queueUrl, String messageReceiptHandle) throws QueueException;
+
+    /**
+     * @return the receipt handles of the messages that could not be deleted
+     */
+    List<String> deleteMessages(String queueUrl, List<String> messageReceiptHandles);
+
+    void deferMessage(String queueUrl, String messageReceiptHandle, int retryDelayInSeconds) throws QueueException;
+
+    /**
+     * @return the receipt handles of the messages whose visibility could not be changed
+     */
+    List<String> deferMessages(String queueUrl, List<String> messageReceiptHandles, int retryDelayInSeconds);
+
+    long getApproximateNumberOfMessages(String queueUrl) throws QueueException;
+}
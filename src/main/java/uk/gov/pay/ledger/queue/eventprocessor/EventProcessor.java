@@ -2,6 +2,23 @@ package uk.gov.pay.ledger.queue.eventprocessor;
 
 import uk.gov.pay.ledger.event.model.Event;
 
+import java.util.Comparator;
+import java.util.List;
+
 public abstract class EventProcessor {
     public abstract void process(Event event);
+
+    /**
+     * Projects several newly stored events for the same resource at once. Projections are built from all of the
+     * resource's stored events, so by default only the most recent event is processed.
+     */
+    public void process(List<Event> eventsForResource) {
+        process(mostRecent(eventsForResource));
+    }
+
+    protected static Event mostRecent(List<Event> events) {
+        return events.stream()
+                .max(Comparator.comparing(Event::getEventDate))
+                .orElseThrow();
+    }
 }
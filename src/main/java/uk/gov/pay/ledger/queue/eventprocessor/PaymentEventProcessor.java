@@ -2,16 +2,21 @@ package uk.gov.pay.ledger.queue.eventprocessor;
 
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
-import uk.gov.pay.ledger.event.model.SalientEventType;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.queue.IngestMetrics;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionMetadataService;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
-import uk.gov.pay.ledger.util.JsonParser;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.EVENT_DIGEST;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.METADATA_UPSERT;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.REFUND_REPROJECTION;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.TRANSACTION_UPSERT;
 
 public class PaymentEventProcessor extends EventProcessor {
 
@@ -19,47 +24,65 @@ public class PaymentEventProcessor extends EventProcessor {
     private TransactionService transactionService;
     private TransactionMetadataService transactionMetadataService;
     private RefundEventProcessor refundEventProcessor;
+    private IngestMetrics ingestMetrics;
 
     public PaymentEventProcessor(EventService eventService,
                                  TransactionService transactionService,
                                  TransactionMetadataService transactionMetadataService,
-                                 RefundEventProcessor refundEventProcessor) {
+                                 RefundEventProcessor refundEventProcessor,
+                                 IngestMetrics ingestMetrics) {
 
         this.eventService = eventService;
         this.transactionService = transactionService;
         this.transactionMetadataService = transactionMetadataService;
         this.refundEventProcessor = refundEventProcessor;
+        this.ingestMetrics = ingestMetrics;
     }
 
     @Override
     public void process(Event event) {
-        List<Event> events = eventService.getEventsForResource(event.getResourceExternalId());
-        EventDigest paymentEventDigest = EventDigest.fromEventList(events);
+        process(List.of(event));
+    }
+
+    @Override
+    public void process(List<Event> eventsForResource) {
+        Event mostRecentEvent = mostRecent(eventsForResource);
+        EventDigest paymentEventDigest = ingestMetrics.time(EVENT_DIGEST,
+                () -> eventService.getEventDigestForResource(mostRecentEvent));
 
-        transactionService.upsertTransactionFor(paymentEventDigest);
-        transactionMetadataService.upsertMetadataFor(event);
+        ingestMetrics.time(TRANSACTION_UPSERT, () -> transactionService.upsertTransactionFor(paymentEventDigest));
+        ingestMetrics.time(METADATA_UPSERT, () -> eventsForResource.forEach(transactionMetadataService::upsertMetadataFor));
 
         /**
          * If the payment has associated refunds, we want to update the payment details that we also store on refunds to
          * keep these in sync with the payment.
          * We avoid a database query to get refunds when the payment has not been in a success state, as it is not
-         * possible for refunds to exist in this case. We also avoid this query when the current event contains no data
-         * that needs to be updated on the refund.
+         * possible for refunds to exist in this case. We also avoid this query when none of the current events contain
+         * data that needs to be updated on the refund.
          */
-        Map<String, Object> eventDataMap = JsonParser.jsonStringToMap(event.getEventData());
-        boolean shouldCheckForRefundsToUpdate = !event.getEventType().equals("REFUND_AVAILABILITY_UPDATED") &&
-                !(eventDataMap == null || eventDataMap.isEmpty()) &&
-                hasSuccessEvent(events);
+        boolean shouldCheckForRefundsToUpdate = eventsForResource.stream().anyMatch(this::hasDataToUpdateOnRefunds) &&
+                hasSuccessEvent(paymentEventDigest);
 
         if (shouldCheckForRefundsToUpdate) {
-            transactionService.getChildTransactions(event.getResourceExternalId())
-                    .forEach(refundTransactionEntity -> refundEventProcessor.reprojectRefundTransaction(refundTransactionEntity.getExternalId(), paymentEventDigest));
+            List<String> refundExternalIds = transactionService.getChildTransactions(mostRecentEvent.getResourceExternalId())
+                    .stream()
+                    .map(TransactionEntity::getExternalId)
+                    .collect(Collectors.toList());
+            if (!refundExternalIds.isEmpty()) {
+                ingestMetrics.time(REFUND_REPROJECTION,
+                        () -> refundEventProcessor.reprojectRefundTransactions(refundExternalIds, paymentEventDigest));
+            }
         }
     }
 
-    private boolean hasSuccessEvent(List<Event> events) {
-        return events.stream().map(event -> SalientEventType.from(event.getEventType()))
-                .flatMap(Optional::stream)
+    private boolean hasDataToUpdateOnRefunds(Event event) {
+        Map<String, Object> eventDataMap = event.getEventDataMap();
+        return !event.getEventType().equals("REFUND_AVAILABILITY_UPDATED") &&
+                !(eventDataMap == null || eventDataMap.isEmpty());
+    }
+
+    private boolean hasSuccessEvent(EventDigest paymentEventDigest) {
+        return paymentEventDigest.getSalientEventTypes().stream()
                 .anyMatch(salientEventType -> TransactionState.fromEventType(salientEventType) == TransactionState.SUCCESS);
     }
 }
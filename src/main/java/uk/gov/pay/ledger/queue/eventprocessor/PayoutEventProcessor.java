@@ -1,20 +1,28 @@
 package uk.gov.pay.ledger.queue.eventprocessor;
 
 import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.service.EventService;
 import uk.gov.pay.ledger.payout.service.PayoutService;
+import uk.gov.pay.ledger.queue.IngestMetrics;
+
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.EVENT_DIGEST;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.PAYOUT_UPSERT;
 
 public class PayoutEventProcessor extends EventProcessor {
     private EventService eventService;
     private PayoutService payoutService;
+    private IngestMetrics ingestMetrics;
 
-    public PayoutEventProcessor(EventService eventService, PayoutService payoutService) {
+    public PayoutEventProcessor(EventService eventService, PayoutService payoutService, IngestMetrics ingestMetrics) {
         this.eventService = eventService;
         this.payoutService = payoutService;
+        this.ingestMetrics = ingestMetrics;
     }
 
     @Override
     public void process(Event event) {
-        payoutService.upsertPayoutFor(eventService.getEventDigestForResource(event));
+        EventDigest payoutEventDigest = ingestMetrics.time(EVENT_DIGEST, () -> eventService.getEventDigestForResource(event));
+        ingestMetrics.time(PAYOUT_UPSERT, () -> payoutService.upsertPayoutFor(payoutEventDigest));
     }
 }
@@ -5,67 +5,60 @@ import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
 import uk.gov.pay.ledger.event.service.EventService;
 import uk.gov.pay.ledger.exception.EmptyEventsException;
+import uk.gov.pay.ledger.queue.IngestMetrics;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.EVENT_DIGEST;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.TRANSACTION_UPSERT;
 
 public class RefundEventProcessor extends EventProcessor {
     private final EventService eventService;
     private final TransactionService transactionService;
     private final TransactionEntityFactory transactionEntityFactory;
+    private final IngestMetrics ingestMetrics;
 
     public RefundEventProcessor(EventService eventService, TransactionService transactionService,
-                                TransactionEntityFactory transactionEntityFactory) {
+                                TransactionEntityFactory transactionEntityFactory, IngestMetrics ingestMetrics) {
 
         this.eventService = eventService;
         this.transactionService = transactionService;
         this.transactionEntityFactory = transactionEntityFactory;
+        this.ingestMetrics = ingestMetrics;
     }
 
     @Override
     public void process(Event event) {
-        EventDigest refundEventDigest = eventService.getEventDigestForResource(event);
-        Optional<EventDigest> mayBePaymentEventDigest = Optional.empty();
+        EventDigest refundEventDigest = ingestMetrics.time(EVENT_DIGEST, () -> eventService.getEventDigestForResource(event));
+        Optional<EventDigest> mayBePaymentEventDigest = isNotBlank(refundEventDigest.getParentResourceExternalId())
+                ? ingestMetrics.time(EVENT_DIGEST, () -> getPaymentEventDigest(refundEventDigest.getParentResourceExternalId()))
+                : Optional.empty();
 
-        if (isNotBlank(refundEventDigest.getParentResourceExternalId())) {
-            mayBePaymentEventDigest = getPaymentEventDigest(refundEventDigest.getParentResourceExternalId());
-        }
-
-        mayBePaymentEventDigest.ifPresentOrElse(
+        ingestMetrics.time(TRANSACTION_UPSERT, () -> mayBePaymentEventDigest.ifPresentOrElse(
                 paymentEventDigest -> projectRefundTransactionWithPaymentDetails(refundEventDigest, paymentEventDigest),
-                () -> transactionService.upsertTransactionFor(refundEventDigest));
+                () -> transactionService.upsertTransactionFor(refundEventDigest)));
     }
 
-    public void reprojectRefundTransaction(String refundExternalId, EventDigest paymentEventDigest) {
-        EventDigest refundEventDigest = eventService.getEventDigestForResource(refundExternalId);
-        projectRefundTransactionWithPaymentDetails(refundEventDigest, paymentEventDigest);
+    /**
+     * Re-projects several refunds of the same payment, reading the events of all of them in one query and writing
+     * them all in a single batch.
+     */
+    public void reprojectRefundTransactions(List<String> refundExternalIds, EventDigest paymentEventDigest) {
+        List<TransactionEntity> refundTransactions = eventService.getEventDigestsForResources(refundExternalIds)
+                .values()
+                .stream()
+                .map(refundEventDigest -> transactionEntityFactory.createRefund(refundEventDigest, paymentEventDigest))
+                .collect(Collectors.toList());
+        transactionService.upsertTransactions(refundTransactions);
     }
 
     private void projectRefundTransactionWithPaymentDetails(EventDigest refundEventDigest, EventDigest paymentEventDigest) {
-        /**
-         * Apply shared refund payment attributes to the refund digest
-         *
-         * Frontend consumers rely on searching/ filtering/ downloading attributes that belong to a payment on the
-         * refund. Previously this was done at the "view" level by joining transactions to transactions, for performance
-         * reasons this is now done here during domain object projection (as transactions are de-normalised).
-         *
-         * If there is no longer a frontend requirement to display payment information on a refund, this shared data
-         * for the digest can be removed.
-         */
-        Map<String, Object> fieldsFromPayment = getPaymentFieldsToProjectOnToRefund(paymentEventDigest);
-        refundEventDigest.getEventPayload().put("payment_details", fieldsFromPayment);
-
-        TransactionEntity refundTransactionEntity = transactionEntityFactory.create(refundEventDigest);
-        TransactionEntity paymentTransactionEntity = transactionEntityFactory.create(paymentEventDigest);
-        refundTransactionEntity.setEntityFieldsFromOriginalPayment(paymentTransactionEntity);
-
-        transactionService.upsertTransaction(refundTransactionEntity);
+        transactionService.upsertTransaction(transactionEntityFactory.createRefund(refundEventDigest, paymentEventDigest));
     }
 
     private Optional<EventDigest> getPaymentEventDigest(String paymentExternalId) {
@@ -77,17 +70,4 @@ public class RefundEventProcessor extends EventProcessor {
         }
         return Optional.ofNullable(paymentEventDigest);
     }
-
-    private Map<String, Object> getPaymentFieldsToProjectOnToRefund(EventDigest paymentEventDigest) {
-        List<String> paymentsFieldsToCopyToRefunds = List.of("card_brand_label", "expiry_date", "card_type", "wallet_type");
-
-        var paymentPayloadIsEmpty = paymentEventDigest == null || paymentEventDigest.getEventPayload() == null;
-
-        return paymentPayloadIsEmpty
-                ? Map.of()
-                : paymentEventDigest.getEventPayload()
-                .entrySet()
-                .stream().filter(entry -> paymentsFieldsToCopyToRefunds.contains(entry.getKey()))
-                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
-    }
 }
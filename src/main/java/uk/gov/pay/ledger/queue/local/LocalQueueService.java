@@ -0,0 +1,232 @@
+package uk.gov.pay.ledger.queue.local;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.app.config.LocalQueueConfig;
+import uk.gov.pay.ledger.queue.QueueException;
+import uk.gov.pay.ledger.queue.QueueMessage;
+import uk.gov.pay.ledger.queue.QueueService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * An in-process queue with the receive, delete, defer and visibility timeout semantics of SQS, for driving ingestion
+ * without SQS, for example to measure throughput or to replay a captured stream of events against a local database.
+ * <p>
+ * Each queue URL has its own local queue. A queue with a message file configured loads every line of it as a message
+ * body when the service is created, and messages sent to that queue later are appended to it, so the same stream can
+ * be replayed on the next run. Messages are not removed from the file when they are deleted.
+ */
+public class LocalQueueService implements QueueService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalQueueService.class);
+
+    private final Map<String, Path> messageFilesByQueueUrl;
+    private final Duration visibilityTimeout;
+    private final Duration maximumWaitTime;
+    private final int maximumBatchSize;
+    private final Clock clock;
+
+    private final Map<String, LocalQueue> queuesByUrl = new HashMap<>();
+    private long nextMessageId;
+
+    public LocalQueueService(LedgerConfig configuration) {
+        this(messageFilesByQueueUrl(configuration),
+                Duration.ofSeconds(configuration.getSqsConfig().getMessageVisibilityTimeoutInSeconds()),
+                Duration.ofSeconds(configuration.getSqsConfig().getMessageMaximumWaitTimeInSeconds()),
+                configuration.getSqsConfig().getMessageMaximumBatchSize(),
+                Clock.systemUTC());
+    }
+
+    LocalQueueService(Map<String, Path> messageFilesByQueueUrl, Duration visibilityTimeout, Duration maximumWaitTime,
+                      int maximumBatchSize, Clock clock) {
+        this.messageFilesByQueueUrl = messageFilesByQueueUrl;
+        this.visibilityTimeout = visibilityTimeout;
+        this.maximumWaitTime = maximumWaitTime;
+        this.maximumBatchSize = maximumBatchSize;
+        this.clock = clock;
+
+        messageFilesByQueueUrl.forEach((queueUrl, messageFile) -> {
+            if (Files.exists(messageFile)) {
+                try {
+                    LocalQueue queue = queueFor(queueUrl);
+                    Files.readAllLines(messageFile, StandardCharsets.UTF_8).stream()
+                            .filter(StringUtils::isNotBlank)
+                            .forEach(messageBody -> enqueue(queue, messageBody));
+                    LOGGER.info("Loaded {} messages for local queue {} from message file {}",
+                            queue.visibleMessages.size(), queueUrl, messageFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read local queue message file " + messageFile, e);
+                }
+            }
+        });
+    }
+
+    private static Map<String, Path> messageFilesByQueueUrl(LedgerConfig configuration) {
+        LocalQueueConfig localQueueConfig = configuration.getLocalQueueConfig();
+        Map<String, Path> messageFilesByQueueUrl = new HashMap<>();
+        if (StringUtils.isNotBlank(localQueueConfig.getMessageFile())) {
+            messageFilesByQueueUrl.put(configuration.getSqsConfig().getEventQueueUrl(),
+                    Paths.get(localQueueConfig.getMessageFile()));
+        }
+        for (EventQueueConfig eventQueue : configuration.getSqsConfig().getAdditionalEventQueues()) {
+            String messageFile = localQueueConfig.getAdditionalMessageFiles().get(eventQueue.getName());
+            if (StringUtils.isNotBlank(messageFile)) {
+                messageFilesByQueueUrl.put(eventQueue.getUrl(), Paths.get(messageFile));
+            }
+        }
+        return messageFilesByQueueUrl;
+    }
+
+    public synchronized void sendMessage(String queueUrl, String messageBody) {
+        Path messageFile = messageFilesByQueueUrl.get(queueUrl);
+        if (messageFile != null) {
+            try {
+                Files.writeString(messageFile, messageBody + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to local queue message file " + messageFile, e);
+            }
+        }
+        enqueue(queueFor(queueUrl), messageBody);
+        notifyAll();
+    }
+
+    @Override
+    public synchronized List<QueueMessage> receiveMessages(String queueUrl, String messageAttributeName) {
+        LocalQueue queue = queueFor(queueUrl);
+        long waitUntil = System.currentTimeMillis() + maximumWaitTime.toMillis();
+        makeExpiredMessagesVisible(queue);
+
+        while (queue.visibleMessages.isEmpty()) {
+            long remainingWait = waitUntil - System.currentTimeMillis();
+            if (remainingWait <= 0) {
+                return List.of();
+            }
+            try {
+                wait(remainingWait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return List.of();
+            }
+            makeExpiredMessagesVisible(queue);
+        }
+
+        Instant visibleFrom = clock.instant().plus(visibilityTimeout);
+        List<QueueMessage> messages = new ArrayList<>();
+        while (messages.size() < maximumBatchSize && !queue.visibleMessages.isEmpty()) {
+            LocalMessage message = queue.visibleMessages.poll();
+            message.receiptHandle = UUID.randomUUID().toString();
+            message.visibleFrom = visibleFrom;
+            queue.invisibleMessagesByReceiptHandle.put(message.receiptHandle, message);
+            messages.add(QueueMessage.of(message.messageId, message.receiptHandle, message.messageBody));
+        }
+        return messages;
+    }
+
+    @Override
+    public void deleteMessage(String queueUrl, String messageReceiptHandle) throws QueueException {
+        if (!deleteMessages(queueUrl, List.of(messageReceiptHandle)).isEmpty()) {
+            throw new QueueException("Failed to delete message from local queue",
+                    new IllegalArgumentException("Receipt handle is not valid: " + messageReceiptHandle));
+        }
+    }
+
+    @Override
+    public synchronized List<String> deleteMessages(String queueUrl, List<String> messageReceiptHandles) {
+        LocalQueue queue = queueFor(queueUrl);
+        return messageReceiptHandles.stream()
+                .filter(receiptHandle -> queue.invisibleMessagesByReceiptHandle.remove(receiptHandle) == null)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void deferMessage(String queueUrl, String messageReceiptHandle, int retryDelayInSeconds) throws QueueException {
+        if (!deferMessages(queueUrl, List.of(messageReceiptHandle), retryDelayInSeconds).isEmpty()) {
+            throw new QueueException("Failed to defer message from local queue",
+                    new IllegalArgumentException("Receipt handle is not valid: " + messageReceiptHandle));
+        }
+    }
+
+    @Override
+    public synchronized List<String> deferMessages(String queueUrl, List<String> messageReceiptHandles, int retryDelayInSeconds) {
+        LocalQueue queue = queueFor(queueUrl);
+        Instant visibleFrom = clock.instant().plusSeconds(retryDelayInSeconds);
+        List<String> failedReceiptHandles = new ArrayList<>();
+        for (String receiptHandle : messageReceiptHandles) {
+            LocalMessage message = queue.invisibleMessagesByReceiptHandle.get(receiptHandle);
+            if (message == null) {
+                failedReceiptHandles.add(receiptHandle);
+            } else {
+                message.visibleFrom = visibleFrom;
+            }
+        }
+        return failedReceiptHandles;
+    }
+
+    @Override
+    public synchronized long getApproximateNumberOfMessages(String queueUrl) {
+        LocalQueue queue = queueFor(queueUrl);
+        makeExpiredMessagesVisible(queue);
+        return queue.visibleMessages.size();
+    }
+
+    private LocalQueue queueFor(String queueUrl) {
+        return queuesByUrl.computeIfAbsent(queueUrl, url -> new LocalQueue());
+    }
+
+    private void enqueue(LocalQueue queue, String messageBody) {
+        queue.visibleMessages.add(new LocalMessage("local-" + nextMessageId++, messageBody));
+    }
+
+    private void makeExpiredMessagesVisible(LocalQueue queue) {
+        Instant now = clock.instant();
+        Iterator<LocalMessage> iterator = queue.invisibleMessagesByReceiptHandle.values().iterator();
+        while (iterator.hasNext()) {
+            LocalMessage message = iterator.next();
+            if (!message.visibleFrom.isAfter(now)) {
+                iterator.remove();
+                message.receiptHandle = null;
+                queue.visibleMessages.add(message);
+            }
+        }
+    }
+
+    private static class LocalQueue {
+        private final Deque<LocalMessage> visibleMessages = new ArrayDeque<>();
+        private final Map<String, LocalMessage> invisibleMessagesByReceiptHandle = new HashMap<>();
+    }
+
+    private static class LocalMessage {
+        private final String messageId;
+        private final String messageBody;
+        private String receiptHandle;
+        private Instant visibleFrom;
+
+        private LocalMessage(String messageId, String messageBody) {
+            this.messageId = messageId;
+            this.messageBody = messageBody;
+        }
+    }
+}
@@ -1,70 +1,373 @@
 package uk.gov.pay.ledger.queue.managed;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.inject.Inject;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
 import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageAcknowledger;
 import uk.gov.pay.ledger.queue.EventMessageHandler;
+import uk.gov.pay.ledger.queue.EventQueue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Receives event messages in a pipeline: poller threads only fetch messages from the queue and hand them off to a
+ * bounded in-memory queue, from which a separately sized pool of workers takes batches to process. Pollers stop
+ * fetching while the hand-off queue is at or above its high-water mark, so messages are left on SQS rather than
+ * building up in memory when the workers fall behind.
+ * <p>
+ * The capacity is a hard limit on the messages held between receiving and processing them: each poller reserves a
+ * slot for every message a receive could return before polling, and gives back the unused ones once it has the
+ * messages. A message's slot is released once a worker has acknowledged or deferred it, or when it is handed back on
+ * shutdown.
+ * <p>
+ * With additional event queues configured, each poll chooses a queue in proportion to the queues' weights. Messages
+ * from a priority queue are taken by workers ahead of any others, and priority queues are still polled above the
+ * high-water mark, up to the hand-off queue's capacity, so a backlog on another queue cannot hold them up.
+ * <p>
+ * In striped mode the hand-off queue is split into one lane per worker and each message is routed to a lane by its
+ * resource (the parent resource for refunds), so events for one payment and its refunds are processed in order by a
+ * single worker while different payments are processed in parallel.
+ * <p>
+ * The pools are sized to their configured maximums; with autoscaling enabled only as many pollers and workers as the
+ * {@link QueueMessageReceiverAutoscaler} currently allows do any work, based on the queue backlog and ingest lag. In
+ * striped mode every lane needs its worker, so only the pollers are scaled.
+ * <p>
+ * On shutdown the receiver drains: polling stops, workers finish the batches they are processing (up to the drain
+ * timeout) and any messages left in the hand-off queue are handed back to SQS, so that another instance can receive
+ * them at once instead of after their visibility timeout.
+ */
 public class QueueMessageReceiver implements Managed {
 
     private static final String QUEUE_MESSAGE_RECEIVER_THREAD_NAME = "queue-message-receiver-%d";
+    private static final String QUEUE_MESSAGE_WORKER_THREAD_NAME = "queue-message-worker-%d";
+    private static final String QUEUE_MESSAGE_AUTOSCALER_THREAD_NAME = "queue-message-autoscaler-%d";
+    private static final long WORKER_POLL_TIMEOUT_IN_MILLISECONDS = 500;
     private static final Logger LOGGER = LoggerFactory.getLogger(QueueMessageReceiver.class);
     private final QueueMessageReceiverConfig config;
 
     private final int queueReadScheduleNumberOfThreads;
+    private final int numberOfWorkerThreads;
+    private final int handOffQueueHighWaterMark;
+    private final int handOffQueueCapacity;
+    private final int workerMaximumBatchSize;
+    private final long drainTimeoutInMilliseconds;
+
+    private final List<BlockingQueue<HandOff>> handOffLanes;
+    private final Semaphore handOffSlots;
+    private final WeightedEventQueueSelector eventQueueSelector;
+    private final AtomicLong handOffSequence = new AtomicLong();
+    private final QueueMessageReceiverAutoscaler autoscaler;
+    private final MetricRegistry metricRegistry;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private volatile boolean running;
 
     private ScheduledExecutorService scheduledExecutorService;
+    private ExecutorService workerExecutorService;
+    private ScheduledExecutorService autoscalerExecutorService;
+    private EventQueue eventQueue;
     private EventMessageHandler eventMessageHandler;
+    private EventMessageAcknowledger eventMessageAcknowledger;
 
     @Inject
     public QueueMessageReceiver(
             Environment environment,
             LedgerConfig configuration,
-            EventMessageHandler eventMessageHandler) {
+            EventQueue eventQueue,
+            EventMessageHandler eventMessageHandler,
+            EventMessageAcknowledger eventMessageAcknowledger) {
+        this.eventQueue = eventQueue;
         this.eventMessageHandler = eventMessageHandler;
+        this.eventMessageAcknowledger = eventMessageAcknowledger;
         this.config = configuration.getQueueMessageReceiverConfig();
         this.queueReadScheduleNumberOfThreads = config.getNumberOfThreads();
+        this.numberOfWorkerThreads = config.getNumberOfWorkerThreads();
+        this.workerMaximumBatchSize = configuration.getSqsConfig().getMessageMaximumBatchSize();
+        // a poll needs room for a whole receive, so the capacity can be no smaller than one
+        this.handOffQueueCapacity = Math.max(config.getHandOffQueueCapacity(), workerMaximumBatchSize);
+        this.handOffQueueHighWaterMark = Math.min(config.getHandOffQueueHighWaterMark(), handOffQueueCapacity);
+        this.handOffSlots = new Semaphore(handOffQueueCapacity);
+        this.drainTimeoutInMilliseconds = config.getDrainTimeoutInMilliseconds();
+        this.handOffLanes = createHandOffLanes(config);
+        this.eventQueueSelector = new WeightedEventQueueSelector(eventQueue.getEventQueues());
 
         scheduledExecutorService = environment
                 .lifecycle()
                 .scheduledExecutorService(QUEUE_MESSAGE_RECEIVER_THREAD_NAME)
                 .threads(queueReadScheduleNumberOfThreads)
                 .build();
+
+        workerExecutorService = environment
+                .lifecycle()
+                .executorService(QUEUE_MESSAGE_WORKER_THREAD_NAME)
+                .minThreads(numberOfWorkerThreads)
+                .maxThreads(numberOfWorkerThreads)
+                .build();
+
+        autoscalerExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService(QUEUE_MESSAGE_AUTOSCALER_THREAD_NAME)
+                .threads(1)
+                .build();
+
+        metricRegistry = environment.metrics();
+        int minimumNumberOfWorkerThreads = config.isStripedProcessingEnabled()
+                ? numberOfWorkerThreads
+                : config.getMinimumNumberOfWorkerThreads();
+        autoscaler = new QueueMessageReceiverAutoscaler(
+                config.getMinimumNumberOfThreads(), queueReadScheduleNumberOfThreads,
+                minimumNumberOfWorkerThreads, numberOfWorkerThreads,
+                config.getAutoscalingBacklogPerWorker(), config.getAutoscalingMaximumIngestLagInSeconds(),
+                config.isAutoscalingEnabled(), metricRegistry);
+
+        metricRegistry.register("queue-message-receiver.hand-off-queue-depth", (Gauge<Integer>) this::handOffQueueDepth);
+        metricRegistry.register("queue-message-receiver.busy-workers", (Gauge<Integer>) busyWorkers::get);
+        metricRegistry.register("queue-message-receiver.worker-utilisation",
+                (Gauge<Double>) () -> (double) busyWorkers.get() / autoscaler.getActiveWorkers());
     }
 
     @Override
     public void start() {
         long initialDelay = config.getThreadDelayInMilliseconds();
         long delay = config.getThreadDelayInMilliseconds();
+        running = true;
+
+        for (int i = 0; i < numberOfWorkerThreads; i++) {
+            int workerIndex = i;
+            BlockingQueue<HandOff> lane = handOffLanes.get(i % handOffLanes.size());
+            workerExecutorService.execute(() -> work(workerIndex, lane));
+        }
 
         for(int i = 0; i < queueReadScheduleNumberOfThreads; i++) {
+            int pollerIndex = i;
             scheduledExecutorService.scheduleWithFixedDelay(
-                    this::receive,
+                    () -> receive(pollerIndex),
                     initialDelay,
                     delay,
                     TimeUnit.MILLISECONDS
             );
         }
+
+        if (config.isAutoscalingEnabled()) {
+            autoscalerExecutorService.scheduleWithFixedDelay(
+                    this::autoscale,
+                    config.getAutoscalingIntervalInMilliseconds(),
+                    config.getAutoscalingIntervalInMilliseconds(),
+                    TimeUnit.MILLISECONDS
+            );
+        }
     }
 
-    private void receive() {
-        LOGGER.info("Queue message receiver thread polling queue");
+    private void autoscale() {
         try {
-            eventMessageHandler.handle();
+            long backlog = eventQueue.getApproximateNumberOfMessages();
+            double ingestLagInSeconds = metricRegistry.histogram(EventMessageHandler.INGEST_LAG_HISTOGRAM_NAME)
+                    .getSnapshot()
+                    .getMedian() / TimeUnit.SECONDS.toMicros(1);
+            autoscaler.adjust(backlog, ingestLagInSeconds);
+        } catch (Exception e) {
+            LOGGER.warn("Queue message autoscaler could not adjust concurrency - {}", e.getMessage());
+        }
+    }
+
+    private void receive(int pollerIndex) {
+        if (pollerIndex >= autoscaler.getActivePollers()) {
+            return;
+        }
+
+        int handOffQueueDepth = handOffQueueDepth();
+        boolean belowHighWaterMark = handOffQueueDepth < handOffQueueHighWaterMark;
+        if (!belowHighWaterMark && (!eventQueueSelector.hasNonPriorityQueues() || handOffQueueDepth >= handOffQueueCapacity)) {
+            LOGGER.debug("Queue message receiver thread skipping poll, hand-off queue is at its high-water mark");
+            return;
+        }
+
+        if (!handOffSlots.tryAcquire(workerMaximumBatchSize)) {
+            LOGGER.debug("Queue message receiver thread skipping poll, hand-off queue is at its capacity");
+            return;
+        }
+
+        int unusedSlots = workerMaximumBatchSize;
+        try {
+            Optional<EventQueueConfig> selectedQueue = eventQueueSelector.next(belowHighWaterMark);
+            if (selectedQueue.isEmpty()) {
+                return;
+            }
+
+            EventQueueConfig queue = selectedQueue.get();
+            LOGGER.info("Queue message receiver thread polling queue", kv("queue", queue.getName()));
+            List<EventMessage> messages = eventQueue.retrieveEvents(queue);
+            unusedSlots -= messages.size();
+            for (EventMessage message : messages) {
+                laneFor(message).add(new HandOff(message, queue.isPriority(), handOffSequence.incrementAndGet()));
+            }
         } catch (Exception e) {
             LOGGER.error("Queue message receiver thread exception", e);
+        } finally {
+            handOffSlots.release(unusedSlots);
+        }
+    }
+
+    private void work(int workerIndex, BlockingQueue<HandOff> handOffQueue) {
+        while (running) {
+            try {
+                if (workerIndex >= autoscaler.getActiveWorkers()) {
+                    Thread.sleep(WORKER_POLL_TIMEOUT_IN_MILLISECONDS);
+                    continue;
+                }
+
+                HandOff first = handOffQueue.poll(WORKER_POLL_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    eventMessageAcknowledger.flushIfDue();
+                    continue;
+                }
+
+                List<HandOff> handOffs = new ArrayList<>(workerMaximumBatchSize);
+                handOffs.add(first);
+                handOffQueue.drainTo(handOffs, workerMaximumBatchSize - 1);
+                List<EventMessage> batch = handOffs.stream()
+                        .map(HandOff::getMessage)
+                        .collect(Collectors.toList());
+
+                busyWorkers.incrementAndGet();
+                try {
+                    eventMessageHandler.handle(batch);
+                } finally {
+                    busyWorkers.decrementAndGet();
+                    handOffSlots.release(handOffs.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.error("Queue message worker thread exception", e);
+            }
+        }
+    }
+
+    // the lanes are unbounded, their total depth is held at or below the capacity by the hand-off slots
+    private static List<BlockingQueue<HandOff>> createHandOffLanes(QueueMessageReceiverConfig config) {
+        int numberOfLanes = config.isStripedProcessingEnabled() ? config.getNumberOfWorkerThreads() : 1;
+        return IntStream.range(0, numberOfLanes)
+                .mapToObj(i -> new PriorityBlockingQueue<HandOff>())
+                .collect(Collectors.toList());
+    }
+
+    private BlockingQueue<HandOff> laneFor(EventMessage message) {
+        if (handOffLanes.size() == 1) {
+            return handOffLanes.get(0);
+        }
+        return handOffLanes.get(Math.floorMod(laneKey(message.getEvent()).hashCode(), handOffLanes.size()));
+    }
+
+    static String laneKey(Event event) {
+        return isBlank(event.getParentResourceExternalId())
+                ? event.getResourceExternalId()
+                : event.getParentResourceExternalId();
+    }
+
+    private int handOffQueueDepth() {
+        return handOffLanes.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * A message waiting in a hand-off lane. Messages from priority queues come first, otherwise messages are taken in
+     * the order they were received.
+     */
+    static class HandOff implements Comparable<HandOff> {
+
+        private final EventMessage message;
+        private final boolean priority;
+        private final long sequence;
+
+        HandOff(EventMessage message, boolean priority, long sequence) {
+            this.message = message;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        EventMessage getMessage() {
+            return message;
+        }
+
+        @Override
+        public int compareTo(HandOff other) {
+            if (priority != other.priority) {
+                return priority ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
         }
     }
 
     @Override
     public void stop() {
+        try (Timer.Context ignored = metricRegistry.timer("queue-message-receiver.drain-duration").time()) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutInMilliseconds);
+        running = false;
+        autoscalerExecutorService.shutdown();
         scheduledExecutorService.shutdown();
+        workerExecutorService.shutdown();
+
+        try {
+            awaitTermination(scheduledExecutorService, deadline);
+            if (!awaitTermination(workerExecutorService, deadline)) {
+                LOGGER.warn("Queue message workers did not finish processing before the drain timeout",
+                        kv("busy_workers", busyWorkers.get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        eventMessageAcknowledger.flush();
+
+        List<EventMessage> unprocessedMessages = new ArrayList<>();
+        for (BlockingQueue<HandOff> lane : handOffLanes) {
+            List<HandOff> handOffs = new ArrayList<>();
+            lane.drainTo(handOffs);
+            handOffs.forEach(handOff -> unprocessedMessages.add(handOff.getMessage()));
+        }
+        handOffSlots.release(unprocessedMessages.size());
+        if (unprocessedMessages.isEmpty()) {
+            return;
+        }
+
+        List<EventMessage> failedMessages = eventQueue.handBackMessages(unprocessedMessages);
+        int handedBack = unprocessedMessages.size() - failedMessages.size();
+        metricRegistry.counter("queue-message-receiver.handed-back-messages").inc(handedBack);
+        LOGGER.info("Queue message receiver handed back unprocessed messages on shutdown",
+                kv("handed_back", handedBack),
+                kv("failed", failedMessages.size()));
+    }
+
+    private static boolean awaitTermination(ExecutorService executorService, long deadline) throws InterruptedException {
+        return executorService.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
     }
 }
@@ -0,0 +1,126 @@
+package uk.gov.pay.ledger.queue.managed;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Decides how many of the queue message receiver's pollers and workers should be active. The number of active workers
+ * doubles while the queue backlog is more than the active workers can be expected to keep up with, or while events
+ * are being projected later than the maximum ingest lag, and falls back one worker at a time once the backlog has
+ * drained well below that. Pollers are scaled the same way but on their own, each expected to keep up with the
+ * backlog of as many workers as it feeds at full concurrency, so that they still scale when the workers cannot.
+ */
+class QueueMessageReceiverAutoscaler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueueMessageReceiverAutoscaler.class);
+
+    enum Decision {
+        SCALE_UP, SCALE_DOWN, HOLD
+    }
+
+    private final int minimumPollers;
+    private final int maximumPollers;
+    private final int minimumWorkers;
+    private final int maximumWorkers;
+    private final long backlogPerWorker;
+    private final long backlogPerPoller;
+    private final double maximumIngestLagInSeconds;
+
+    private final AtomicInteger activePollers;
+    private final AtomicInteger activeWorkers;
+    private volatile long approximateBacklog;
+
+    private final Counter scaleUps;
+    private final Counter scaleDowns;
+    private final Counter holds;
+
+    QueueMessageReceiverAutoscaler(int minimumPollers, int maximumPollers,
+                                   int minimumWorkers, int maximumWorkers,
+                                   long backlogPerWorker, double maximumIngestLagInSeconds,
+                                   boolean enabled, MetricRegistry metricRegistry) {
+        this.maximumPollers = maximumPollers;
+        this.minimumPollers = Math.min(minimumPollers, maximumPollers);
+        this.maximumWorkers = maximumWorkers;
+        this.minimumWorkers = Math.min(minimumWorkers, maximumWorkers);
+        this.backlogPerWorker = backlogPerWorker;
+        this.backlogPerPoller = Math.max(1, backlogPerWorker * maximumWorkers / Math.max(1, maximumPollers));
+        this.maximumIngestLagInSeconds = maximumIngestLagInSeconds;
+        this.activePollers = new AtomicInteger(enabled ? this.minimumPollers : maximumPollers);
+        this.activeWorkers = new AtomicInteger(enabled ? this.minimumWorkers : maximumWorkers);
+
+        metricRegistry.register("queue-message-receiver.active-pollers", (Gauge<Integer>) activePollers::get);
+        metricRegistry.register("queue-message-receiver.active-workers", (Gauge<Integer>) activeWorkers::get);
+        metricRegistry.register("queue-message-receiver.autoscaler.approximate-backlog", (Gauge<Long>) () -> approximateBacklog);
+        this.scaleUps = metricRegistry.counter("queue-message-receiver.autoscaler.scale-ups");
+        this.scaleDowns = metricRegistry.counter("queue-message-receiver.autoscaler.scale-downs");
+        this.holds = metricRegistry.counter("queue-message-receiver.autoscaler.holds");
+    }
+
+    /**
+     * @param backlog the approximate number of messages waiting on the queue
+     * @param ingestLagInSeconds the typical time between an event happening and it being projected
+     */
+    Decision adjust(long backlog, double ingestLagInSeconds) {
+        approximateBacklog = backlog;
+        boolean lagging = backlog > 0 && ingestLagInSeconds > maximumIngestLagInSeconds;
+
+        Decision workerDecision = scale(activeWorkers, minimumWorkers, maximumWorkers, backlogPerWorker, backlog, lagging);
+        Decision pollerDecision = scale(activePollers, minimumPollers, maximumPollers, backlogPerPoller, backlog, lagging);
+
+        if (workerDecision == Decision.SCALE_UP || pollerDecision == Decision.SCALE_UP) {
+            scaleUps.inc();
+            log(Decision.SCALE_UP, backlog, ingestLagInSeconds);
+            return Decision.SCALE_UP;
+        }
+
+        if (workerDecision == Decision.SCALE_DOWN || pollerDecision == Decision.SCALE_DOWN) {
+            scaleDowns.inc();
+            log(Decision.SCALE_DOWN, backlog, ingestLagInSeconds);
+            return Decision.SCALE_DOWN;
+        }
+
+        holds.inc();
+        return Decision.HOLD;
+    }
+
+    private static Decision scale(AtomicInteger active, int minimum, int maximum, long backlogPerUnit,
+                                  long backlog, boolean lagging) {
+        int current = active.get();
+
+        if ((backlog > backlogPerUnit * current || lagging) && current < maximum) {
+            active.set(Math.min(maximum, current * 2));
+            return Decision.SCALE_UP;
+        }
+
+        if (!lagging && backlog * 2 < backlogPerUnit * (current - 1) && current > minimum) {
+            active.set(current - 1);
+            return Decision.SCALE_DOWN;
+        }
+
+        return Decision.HOLD;
+    }
+
+    private void log(Decision decision, long backlog, double ingestLagInSeconds) {
+        LOGGER.info("Queue message receiver concurrency adjusted.",
+                kv("decision", decision),
+                kv("approximate_backlog", backlog),
+                kv("ingest_lag_seconds", ingestLagInSeconds),
+                kv("active_pollers", activePollers.get()),
+                kv("active_workers", activeWorkers.get()));
+    }
+
+    int getActivePollers() {
+        return activePollers.get();
+    }
+
+    int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+}
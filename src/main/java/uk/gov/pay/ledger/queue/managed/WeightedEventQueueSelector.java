@@ -0,0 +1,51 @@
+package uk.gov.pay.ledger.queue.managed;
+
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Chooses the event queue for each poll by smooth weighted round robin: over any run of polls each queue is chosen
+ * in proportion to its weight, and the choices of a queue are spread out rather than bunched together.
+ */
+class WeightedEventQueueSelector {
+
+    private final List<EventQueueConfig> eventQueues;
+    private final long[] currentWeights;
+
+    WeightedEventQueueSelector(List<EventQueueConfig> eventQueues) {
+        this.eventQueues = List.copyOf(eventQueues);
+        this.currentWeights = new long[eventQueues.size()];
+    }
+
+    /**
+     * @param includeNonPriority false to choose only between the priority queues
+     * @return the queue to poll next, or empty if none of the queues may be polled
+     */
+    synchronized Optional<EventQueueConfig> next(boolean includeNonPriority) {
+        int selected = -1;
+        long totalWeight = 0;
+        for (int i = 0; i < eventQueues.size(); i++) {
+            EventQueueConfig eventQueue = eventQueues.get(i);
+            if (!includeNonPriority && !eventQueue.isPriority()) {
+                continue;
+            }
+            currentWeights[i] += eventQueue.getWeight();
+            totalWeight += eventQueue.getWeight();
+            if (selected == -1 || currentWeights[i] > currentWeights[selected]) {
+                selected = i;
+            }
+        }
+
+        if (selected == -1) {
+            return Optional.empty();
+        }
+        currentWeights[selected] -= totalWeight;
+        return Optional.of(eventQueues.get(selected));
+    }
+
+    boolean hasNonPriorityQueues() {
+        return eventQueues.stream().anyMatch(eventQueue -> !eventQueue.isPriority());
+    }
+}
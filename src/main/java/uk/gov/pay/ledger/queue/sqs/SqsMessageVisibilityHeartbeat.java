@@ -0,0 +1,155 @@
+package uk.gov.pay.ledger.queue.sqs;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.queue.QueueService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps messages that are still being processed invisible on the queue. Receipt handles are tracked from the moment
+ * a message is received until it is deleted, deferred or released, and once half of a message's visibility timeout
+ * has passed its visibility is extended again, in batches. A message is given up on (and left to be redelivered) if
+ * it has been in flight for longer than the configured maximum, so a stuck worker cannot hold it forever.
+ */
+@Singleton
+public class SqsMessageVisibilityHeartbeat implements Managed {
+
+    private static final String SQS_VISIBILITY_HEARTBEAT_THREAD_NAME = "sqs-visibility-heartbeat-%d";
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsMessageVisibilityHeartbeat.class);
+
+    private final QueueService queueService;
+    private final Duration visibilityTimeout;
+    private final Duration maximumInFlightDuration;
+    private final Clock clock;
+    private final Map<String, InFlightMessage> inFlightMessages = new ConcurrentHashMap<>();
+
+    private final Counter extensions;
+    private final Counter extensionFailures;
+    private final Counter abandoned;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Inject
+    public SqsMessageVisibilityHeartbeat(QueueService queueService, LedgerConfig configuration, Environment environment) {
+        this(queueService,
+                Duration.ofSeconds(configuration.getSqsConfig().getMessageVisibilityTimeoutInSeconds()),
+                Duration.ofSeconds(configuration.getQueueMessageReceiverConfig().getMessageMaximumInFlightInSeconds()),
+                environment.metrics(),
+                Clock.systemUTC());
+        this.scheduledExecutorService = environment
+                .lifecycle()
+                .scheduledExecutorService(SQS_VISIBILITY_HEARTBEAT_THREAD_NAME)
+                .threads(1)
+                .build();
+    }
+
+    SqsMessageVisibilityHeartbeat(QueueService queueService, Duration visibilityTimeout,
+                                  Duration maximumInFlightDuration, MetricRegistry metricRegistry, Clock clock) {
+        this.queueService = queueService;
+        this.visibilityTimeout = visibilityTimeout;
+        this.maximumInFlightDuration = maximumInFlightDuration;
+        this.clock = clock;
+
+        metricRegistry.register("sqs-visibility-heartbeat.in-flight-messages", (Gauge<Integer>) inFlightMessages::size);
+        this.extensions = metricRegistry.counter("sqs-visibility-heartbeat.extensions");
+        this.extensionFailures = metricRegistry.counter("sqs-visibility-heartbeat.extension-failures");
+        this.abandoned = metricRegistry.counter("sqs-visibility-heartbeat.abandoned");
+    }
+
+    @Override
+    public void start() {
+        long interval = Math.max(1000, visibilityTimeout.toMillis() / 4);
+        scheduledExecutorService.scheduleWithFixedDelay(this::extendVisibility, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        scheduledExecutorService.shutdown();
+    }
+
+    public void track(String queueUrl, Collection<String> receiptHandles) {
+        Instant now = clock.instant();
+        receiptHandles.forEach(receiptHandle ->
+                inFlightMessages.put(receiptHandle, new InFlightMessage(queueUrl, now, now.plus(visibilityTimeout))));
+    }
+
+    public void untrack(Collection<String> receiptHandles) {
+        receiptHandles.forEach(inFlightMessages::remove);
+    }
+
+    void extendVisibility() {
+        try {
+            Instant now = clock.instant();
+            Instant extendBefore = now.plus(visibilityTimeout.dividedBy(2));
+            Map<String, List<String>> receiptHandlesByQueueUrl = new HashMap<>();
+
+            inFlightMessages.forEach((receiptHandle, message) -> {
+                if (message.receivedAt.plus(maximumInFlightDuration).isBefore(now)) {
+                    inFlightMessages.remove(receiptHandle);
+                    abandoned.inc();
+                    LOGGER.warn("Message has been in flight for longer than the maximum, its visibility will no longer be extended. [receivedAt={}]",
+                            message.receivedAt);
+                } else if (message.visibleFrom.isBefore(extendBefore)) {
+                    receiptHandlesByQueueUrl.computeIfAbsent(message.queueUrl, url -> new ArrayList<>()).add(receiptHandle);
+                }
+            });
+
+            receiptHandlesByQueueUrl.forEach((queueUrl, receiptHandles) -> extend(queueUrl, receiptHandles, now));
+        } catch (Exception e) {
+            LOGGER.error("SQS visibility heartbeat exception", e);
+        }
+    }
+
+    private void extend(String queueUrl, List<String> receiptHandles, Instant now) {
+        Set<String> failedReceiptHandles = new HashSet<>(
+                queueService.deferMessages(queueUrl, receiptHandles, (int) visibilityTimeout.getSeconds()));
+        // a handle usually fails because its message has just been deleted, so it no longer needs extending
+        failedReceiptHandles.forEach(inFlightMessages::remove);
+        extensionFailures.inc(failedReceiptHandles.size());
+
+        Instant visibleFrom = now.plus(visibilityTimeout);
+        receiptHandles.stream()
+                .filter(receiptHandle -> !failedReceiptHandles.contains(receiptHandle))
+                .forEach(receiptHandle -> {
+                    inFlightMessages.computeIfPresent(receiptHandle, (handle, message) -> message.extendedUntil(visibleFrom));
+                    extensions.inc();
+                });
+    }
+
+    private static class InFlightMessage {
+        private final String queueUrl;
+        private final Instant receivedAt;
+        private final Instant visibleFrom;
+
+        private InFlightMessage(String queueUrl, Instant receivedAt, Instant visibleFrom) {
+            this.queueUrl = queueUrl;
+            this.receivedAt = receivedAt;
+            this.visibleFrom = visibleFrom;
+        }
+
+        private InFlightMessage extendedUntil(Instant visibleFrom) {
+            return new InFlightMessage(queueUrl, receivedAt, visibleFrom);
+        }
+    }
+}
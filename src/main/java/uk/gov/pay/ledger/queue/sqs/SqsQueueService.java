@@ -1,45 +1,81 @@
 package uk.gov.pay.ledger.queue.sqs;
 
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.AmazonSQSException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.queue.IngestMetrics;
 import uk.gov.pay.ledger.queue.QueueException;
 import uk.gov.pay.ledger.queue.QueueMessage;
+import uk.gov.pay.ledger.queue.QueueService;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.ACKNOWLEDGE;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.RECEIVE;
+import static uk.gov.pay.ledger.queue.IngestMetrics.Stage.VISIBILITY_CHANGE;
+
+/**
+ * Times each call to SQS under the ingest stage it belongs to: receives, deletes and changes of visibility, whether
+ * to retry a message later, hand it back or extend it with the visibility heartbeat.
+ */
+public class SqsQueueService implements QueueService {
+    public static final int MAXIMUM_BATCH_REQUEST_ENTRIES = 10;
 
-public class SqsQueueService {
     private final Logger logger = LoggerFactory.getLogger(SqsQueueService.class);
 
     private AmazonSQS sqsClient;
+    private final IngestMetrics ingestMetrics;
 
     private final int messageMaximumWaitTimeInSeconds;
     private final int messageMaximumBatchSize;
+    private final int messageVisibilityTimeoutInSeconds;
 
     @Inject
-    public SqsQueueService(AmazonSQS sqsClient, LedgerConfig ledgerConfig) {
+    public SqsQueueService(AmazonSQS sqsClient, LedgerConfig ledgerConfig, IngestMetrics ingestMetrics) {
         this.sqsClient = sqsClient;
+        this.ingestMetrics = ingestMetrics;
         this.messageMaximumBatchSize = ledgerConfig.getSqsConfig().getMessageMaximumBatchSize();
         this.messageMaximumWaitTimeInSeconds = ledgerConfig.getSqsConfig().getMessageMaximumWaitTimeInSeconds();
+        this.messageVisibilityTimeoutInSeconds = ledgerConfig.getSqsConfig().getMessageVisibilityTimeoutInSeconds();
     }
 
+    /**
+     * Receives messages with the configured visibility timeout rather than the queue's own, which the visibility
+     * heartbeat relies on to know when each message would become visible again.
+     */
+    @Override
     public List<QueueMessage> receiveMessages(String queueUrl, String messageAttributeName) throws QueueException {
         try {
             ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(queueUrl);
             receiveMessageRequest
                     .withMessageAttributeNames(messageAttributeName)
                     .withWaitTimeSeconds(messageMaximumWaitTimeInSeconds)
-                    .withMaxNumberOfMessages(messageMaximumBatchSize);
+                    .withMaxNumberOfMessages(messageMaximumBatchSize)
+                    .withVisibilityTimeout(messageVisibilityTimeoutInSeconds);
 
-            ReceiveMessageResult receiveMessageResult = sqsClient.receiveMessage(receiveMessageRequest);
+            ReceiveMessageResult receiveMessageResult = ingestMetrics.time(RECEIVE,
+                    () -> sqsClient.receiveMessage(receiveMessageRequest));
 
             return QueueMessage.of(receiveMessageResult);
         } catch (Exception e) {
@@ -48,9 +84,26 @@ public class SqsQueueService {
         }
     }
 
+    @Override
+    public long getApproximateNumberOfMessages(String queueUrl) throws QueueException {
+        try {
+            GetQueueAttributesRequest queueAttributesRequest = new GetQueueAttributesRequest(queueUrl)
+                    .withAttributeNames(QueueAttributeName.ApproximateNumberOfMessages);
+            String approximateNumberOfMessages = sqsClient.getQueueAttributes(queueAttributesRequest)
+                    .getAttributes()
+                    .get(QueueAttributeName.ApproximateNumberOfMessages.toString());
+
+            return Long.parseLong(approximateNumberOfMessages);
+        } catch (SdkClientException | UnsupportedOperationException | NumberFormatException e) {
+            logger.error("Failed to retrieve queue attributes from SQS queue - {}", e.getMessage());
+            throw new QueueException("Failed to retrieve queue attributes from SQS queue", e);
+        }
+    }
+
+    @Override
     public void deleteMessage(String queueUrl, String messageReceiptHandle) throws QueueException {
         try {
-            sqsClient.deleteMessage(new DeleteMessageRequest(queueUrl, messageReceiptHandle));
+            ingestMetrics.time(ACKNOWLEDGE, () -> sqsClient.deleteMessage(new DeleteMessageRequest(queueUrl, messageReceiptHandle)));
         } catch (AmazonSQSException | UnsupportedOperationException e) {
             logger.error("Failed to delete message from SQS queue - {}", e.getMessage());
             throw new QueueException("Failed to delete message from SQS queue", e);
@@ -60,6 +113,78 @@ public class SqsQueueService {
         }
     }
 
+    /**
+     * Deletes the messages using as few DeleteMessageBatch calls as possible.
+     *
+     * @return the receipt handles of the messages that could not be deleted
+     */
+    @Override
+    public List<String> deleteMessages(String queueUrl, List<String> messageReceiptHandles) {
+        List<String> failedReceiptHandles = new ArrayList<>();
+
+        for (List<String> receiptHandles : partition(messageReceiptHandles)) {
+            List<DeleteMessageBatchRequestEntry> entries = IntStream.range(0, receiptHandles.size())
+                    .mapToObj(i -> new DeleteMessageBatchRequestEntry(String.valueOf(i), receiptHandles.get(i)))
+                    .collect(Collectors.toList());
+            try {
+                DeleteMessageBatchResult result = ingestMetrics.time(ACKNOWLEDGE,
+                        () -> sqsClient.deleteMessageBatch(new DeleteMessageBatchRequest(queueUrl, entries)));
+                failedReceiptHandles.addAll(failedReceiptHandles(result.getFailed(), receiptHandles, "delete"));
+            } catch (SdkClientException | UnsupportedOperationException e) {
+                logger.error("Failed to delete batch of messages from SQS queue - {}", e.getMessage());
+                failedReceiptHandles.addAll(receiptHandles);
+            }
+        }
+
+        return failedReceiptHandles;
+    }
+
+    /**
+     * Changes the visibility of the messages using as few ChangeMessageVisibilityBatch calls as possible.
+     *
+     * @return the receipt handles of the messages whose visibility could not be changed
+     */
+    @Override
+    public List<String> deferMessages(String queueUrl, List<String> messageReceiptHandles, int retryDelayInSeconds) {
+        List<String> failedReceiptHandles = new ArrayList<>();
+
+        for (List<String> receiptHandles : partition(messageReceiptHandles)) {
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = IntStream.range(0, receiptHandles.size())
+                    .mapToObj(i -> new ChangeMessageVisibilityBatchRequestEntry(String.valueOf(i), receiptHandles.get(i))
+                            .withVisibilityTimeout(retryDelayInSeconds))
+                    .collect(Collectors.toList());
+            try {
+                ChangeMessageVisibilityBatchResult result = ingestMetrics.time(VISIBILITY_CHANGE,
+                        () -> sqsClient.changeMessageVisibilityBatch(new ChangeMessageVisibilityBatchRequest(queueUrl, entries)));
+                failedReceiptHandles.addAll(failedReceiptHandles(result.getFailed(), receiptHandles, "defer"));
+            } catch (SdkClientException | UnsupportedOperationException e) {
+                logger.error("Failed to defer batch of messages from SQS queue - {}", e.getMessage());
+                failedReceiptHandles.addAll(receiptHandles);
+            }
+        }
+
+        return failedReceiptHandles;
+    }
+
+    private List<String> failedReceiptHandles(List<BatchResultErrorEntry> failedEntries, List<String> receiptHandles, String operation) {
+        return failedEntries.stream()
+                .map(entry -> {
+                    logger.warn("Failed to {} message from SQS queue - [entryId={}] [awsErrorCode={}] [errorMessage={}]",
+                            operation, entry.getId(), entry.getCode(), entry.getMessage());
+                    return receiptHandles.get(Integer.parseInt(entry.getId()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    private List<List<String>> partition(List<String> receiptHandles) {
+        List<List<String>> partitions = new ArrayList<>();
+        for (int i = 0; i < receiptHandles.size(); i += MAXIMUM_BATCH_REQUEST_ENTRIES) {
+            partitions.add(receiptHandles.subList(i, Math.min(i + MAXIMUM_BATCH_REQUEST_ENTRIES, receiptHandles.size())));
+        }
+        return partitions;
+    }
+
+    @Override
     public void deferMessage(String queueUrl, String messageReceiptHandle, int retryDelayInSeconds) throws QueueException {
         try {
             ChangeMessageVisibilityRequest changeMessageVisibilityRequest = new ChangeMessageVisibilityRequest(
@@ -68,7 +193,7 @@ public class SqsQueueService {
                     retryDelayInSeconds
             );
 
-            sqsClient.changeMessageVisibility(changeMessageVisibilityRequest);
+            ingestMetrics.time(VISIBILITY_CHANGE, () -> sqsClient.changeMessageVisibility(changeMessageVisibilityRequest));
         } catch (AmazonSQSException | UnsupportedOperationException e) {
             logger.error("Failed to defer message from SQS queue - {}", e.getMessage());
             throw new QueueException("Failed to defer message from SQS queue", e);
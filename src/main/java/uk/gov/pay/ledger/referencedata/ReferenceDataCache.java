@@ -0,0 +1,105 @@
+package uk.gov.pay.ledger.referencedata;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.event.dao.ResourceTypeDao;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.metadatakey.dao.MetadataKeyDao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process dictionary of resource type and metadata key ids, warmed at startup and filled in on a miss, so that
+ * writes can bind ids directly instead of looking them up by name in every statement. Neither table has rows updated
+ * or deleted, and only the ids of metadata keys inserted outside a transaction are cached, so cached ids never go
+ * stale.
+ */
+public class ReferenceDataCache implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private final Jdbi jdbi;
+    private final ResourceTypeDao resourceTypeDao;
+    private final MetadataKeyDao metadataKeyDao;
+
+    private final Map<ResourceType, Integer> resourceTypeIds = new ConcurrentHashMap<>();
+    private final Map<String, Long> metadataKeyIds = new ConcurrentHashMap<>();
+
+    private final Counter resourceTypeHits;
+    private final Counter resourceTypeMisses;
+    private final Counter metadataKeyHits;
+    private final Counter metadataKeyMisses;
+
+    public ReferenceDataCache(Jdbi jdbi, ResourceTypeDao resourceTypeDao, MetadataKeyDao metadataKeyDao,
+                              MetricRegistry metricRegistry) {
+        this.jdbi = jdbi;
+        this.resourceTypeDao = resourceTypeDao;
+        this.metadataKeyDao = metadataKeyDao;
+        this.resourceTypeHits = metricRegistry.counter("reference-data-cache.resource-type.hits");
+        this.resourceTypeMisses = metricRegistry.counter("reference-data-cache.resource-type.misses");
+        this.metadataKeyHits = metricRegistry.counter("reference-data-cache.metadata-key.hits");
+        this.metadataKeyMisses = metricRegistry.counter("reference-data-cache.metadata-key.misses");
+    }
+
+    @Override
+    public void start() {
+        Map<String, Integer> resourceTypeIdsByName = resourceTypeDao.getResourceTypeIdsByName();
+        for (ResourceType resourceType : ResourceType.values()) {
+            Integer resourceTypeId = resourceTypeIdsByName.get(resourceType.name());
+            if (resourceTypeId != null) {
+                resourceTypeIds.put(resourceType, resourceTypeId);
+            }
+        }
+        metadataKeyIds.putAll(metadataKeyDao.getMetadataKeyIdsByKey());
+
+        LOGGER.info("Reference data cache warmed. [resourceTypes={}] [metadataKeys={}]",
+                resourceTypeIds.size(), metadataKeyIds.size());
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public int getResourceTypeId(ResourceType resourceType) {
+        Integer resourceTypeId = resourceTypeIds.get(resourceType);
+        if (resourceTypeId != null) {
+            resourceTypeHits.inc();
+            return resourceTypeId;
+        }
+        resourceTypeMisses.inc();
+        return resourceTypeIds.computeIfAbsent(resourceType,
+                type -> resourceTypeDao.getResourceTypeIdByName(type.name()));
+    }
+
+    /**
+     * Inserts the key on the handle open on this thread, if there is one, so that no second connection is taken
+     * while a unit of work holds its own. The id of a key inserted inside a transaction is not cached, as the
+     * transaction may still be rolled back; callers resolve keys before opening a unit of work so that this is rare.
+     *
+     * @return the id of the metadata key, inserting the key first if it does not exist yet
+     */
+    public long getOrCreateMetadataKeyId(String key) {
+        Long metadataKeyId = metadataKeyIds.get(key);
+        if (metadataKeyId != null) {
+            metadataKeyHits.inc();
+            return metadataKeyId;
+        }
+        metadataKeyMisses.inc();
+        return jdbi.withHandle(handle -> {
+            MetadataKeyDao handleMetadataKeyDao = handle.attach(MetadataKeyDao.class);
+            long insertedOrFoundId = handleMetadataKeyDao.insertIfNotExist(key)
+                    .or(() -> handleMetadataKeyDao.findIdByKey(key))
+                    .orElseThrow(() -> new IllegalStateException("Metadata key could not be inserted or found: " + key));
+            if (handle.isInTransaction()) {
+                return insertedOrFoundId;
+            }
+            Long cachedId = metadataKeyIds.putIfAbsent(key, insertedOrFoundId);
+            return cachedId != null ? cachedId : insertedOrFoundId;
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package uk.gov.pay.ledger.reprojection;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.payout.dao.PayoutDao;
+import uk.gov.pay.ledger.payout.model.PayoutEntityFactory;
+import uk.gov.pay.ledger.reprojection.dao.ReprojectionDao;
+import uk.gov.pay.ledger.reprojection.model.ReprojectionCheckpoint;
+import uk.gov.pay.ledger.transaction.dao.TransactionDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds transaction and payout rows from the event table, without going through the queue. Run it again with the
+ * same run name to resume an interrupted run, or with --restart to start the run from the beginning. Only the
+ * connection pool and DAOs the re-projection needs are built, not the rest of the application.
+ */
+public class ReprojectEventsCommand extends ConfiguredCommand<LedgerConfig> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReprojectEventsCommand.class);
+    private static final long PROGRESS_REPORT_INTERVAL_IN_SECONDS = 10;
+
+    public ReprojectEventsCommand() {
+        super("reprojectEvents", "Rebuilds transactions and payouts from the event table");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--run-name")
+                .dest("runName")
+                .type(String.class)
+                .setDefault("default")
+                .help("Name of the run, used to resume it");
+        subparser.addArgument("--partitions")
+                .dest("partitions")
+                .type(Integer.class)
+                .setDefault(16)
+                .help("Number of resource external id ranges to split the event table into");
+        subparser.addArgument("--threads")
+                .dest("threads")
+                .type(Integer.class)
+                .setDefault(4)
+                .help("Number of partitions to re-project at the same time");
+        subparser.addArgument("--batch-size")
+                .dest("batchSize")
+                .type(Integer.class)
+                .setDefault(1000)
+                .help("Number of resources to read, project and upsert at a time");
+        subparser.addArgument("--sample-percentage")
+                .dest("samplePercentage")
+                .type(Double.class)
+                .setDefault(1.0)
+                .help("Percentage of the event table sampled to choose the partition bounds");
+        subparser.addArgument("--restart")
+                .dest("restart")
+                .action(Arguments.storeTrue())
+                .help("Discard the checkpoints of a previous run with the same name");
+    }
+
+    @Override
+    protected void run(Bootstrap<LedgerConfig> bootstrap, Namespace namespace, LedgerConfig configuration) throws Exception {
+        int threads = namespace.getInt("threads");
+        int batchSize = namespace.getInt("batchSize");
+
+        ManagedDataSource dataSource = configuration.getDataSourceFactory().build(bootstrap.getMetricRegistry(), "reprojection");
+        Jdbi jdbi = Jdbi.create(dataSource);
+        jdbi.installPlugin(new SqlObjectPlugin());
+        ObjectMapper objectMapper = bootstrap.getObjectMapper();
+        objectMapper.findAndRegisterModules();
+        Reprojector reprojector = new Reprojector(new ReprojectionDao(jdbi), jdbi.onDemand(EventDao.class),
+                new TransactionDao(jdbi), new PayoutDao(jdbi), new TransactionEntityFactory(objectMapper),
+                new PayoutEntityFactory(objectMapper));
+
+        ExecutorService workerExecutorService = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService progressExecutorService = Executors.newSingleThreadScheduledExecutor();
+        try {
+            List<ReprojectionCheckpoint> checkpoints = reprojector.prepareCheckpoints(
+                    namespace.getString("runName"),
+                    namespace.getInt("partitions"),
+                    namespace.getDouble("samplePercentage"),
+                    namespace.getBoolean("restart"));
+
+            ReprojectionProgress progress = new ReprojectionProgress();
+            progressExecutorService.scheduleAtFixedRate(progress::report,
+                    PROGRESS_REPORT_INTERVAL_IN_SECONDS, PROGRESS_REPORT_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+
+            List<Future<?>> partitions = new ArrayList<>();
+            checkpoints.stream()
+                    .filter(checkpoint -> !checkpoint.isCompleted())
+                    .forEach(checkpoint -> partitions.add(
+                            workerExecutorService.submit(() -> reprojector.reprojectPartition(checkpoint, batchSize, progress))));
+
+            int failedPartitions = 0;
+            for (Future<?> partition : partitions) {
+                try {
+                    partition.get();
+                } catch (ExecutionException e) {
+                    failedPartitions++;
+                    LOGGER.error("Re-projection of a partition failed", e.getCause());
+                }
+            }
+
+            progress.report();
+            if (failedPartitions > 0) {
+                throw new IllegalStateException(failedPartitions + " partitions failed to re-project, run the command again to resume them");
+            }
+        } finally {
+            progressExecutorService.shutdownNow();
+            workerExecutorService.shutdownNow();
+            dataSource.stop();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package uk.gov.pay.ledger.reprojection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+public class ReprojectionProgress {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReprojectionProgress.class);
+
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong eventsRead = new AtomicLong();
+    private final AtomicLong resourcesProjected = new AtomicLong();
+    private final AtomicLong rowsUpserted = new AtomicLong();
+
+    void recordBatch(long events, long resources, long rows) {
+        eventsRead.addAndGet(events);
+        resourcesProjected.addAndGet(resources);
+        rowsUpserted.addAndGet(rows);
+    }
+
+    public long getRowsUpserted() {
+        return rowsUpserted.get();
+    }
+
+    public void report() {
+        double elapsedSeconds = Math.max(1, Duration.between(startedAt, Instant.now()).toSeconds());
+        LOGGER.info("Re-projection progress.",
+                kv("events_read", eventsRead.get()),
+                kv("resources_projected", resourcesProjected.get()),
+                kv("rows_upserted", rowsUpserted.get()),
+                kv("events_per_second", Math.round(eventsRead.get() / elapsedSeconds)),
+                kv("rows_per_second", Math.round(rowsUpserted.get() / elapsedSeconds)));
+    }
+}
@@ -0,0 +1,189 @@
+package uk.gov.pay.ledger.reprojection;
+
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.payout.dao.PayoutDao;
+import uk.gov.pay.ledger.payout.entity.PayoutEntity;
+import uk.gov.pay.ledger.payout.model.PayoutEntityFactory;
+import uk.gov.pay.ledger.reprojection.dao.ReprojectionDao;
+import uk.gov.pay.ledger.reprojection.model.ReprojectionCheckpoint;
+import uk.gov.pay.ledger.transaction.dao.TransactionDao;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Rebuilds transaction and payout rows straight from the event table, one partition of resource external ids at a
+ * time. Resources are read in external id order in pages; each page is folded into digests and upserted as JDBC
+ * batches, and the last external id of the page is then recorded against the partition's checkpoint so an
+ * interrupted run resumes where it stopped. The upserts are idempotent, so a page that is projected again after a
+ * crash is harmless.
+ */
+public class Reprojector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Reprojector.class);
+
+    private final ReprojectionDao reprojectionDao;
+    private final EventDao eventDao;
+    private final TransactionDao transactionDao;
+    private final PayoutDao payoutDao;
+    private final TransactionEntityFactory transactionEntityFactory;
+    private final PayoutEntityFactory payoutEntityFactory;
+
+    @Inject
+    public Reprojector(ReprojectionDao reprojectionDao, EventDao eventDao, TransactionDao transactionDao,
+                       PayoutDao payoutDao, TransactionEntityFactory transactionEntityFactory,
+                       PayoutEntityFactory payoutEntityFactory) {
+        this.reprojectionDao = reprojectionDao;
+        this.eventDao = eventDao;
+        this.transactionDao = transactionDao;
+        this.payoutDao = payoutDao;
+        this.transactionEntityFactory = transactionEntityFactory;
+        this.payoutEntityFactory = payoutEntityFactory;
+    }
+
+    /**
+     * Returns the checkpoints of an existing run so it can be resumed, or splits the event table into partitions and
+     * records the checkpoints of a new run.
+     */
+    public List<ReprojectionCheckpoint> prepareCheckpoints(String runName, int partitions, double samplePercentage, boolean restart) {
+        if (restart) {
+            reprojectionDao.deleteCheckpoints(runName);
+        }
+
+        List<ReprojectionCheckpoint> existingCheckpoints = reprojectionDao.findCheckpoints(runName);
+        if (!existingCheckpoints.isEmpty()) {
+            LOGGER.info("Resuming re-projection run [{}] with {} partitions", runName, existingCheckpoints.size());
+            return existingCheckpoints;
+        }
+
+        List<String> bounds = reprojectionDao.findPartitionBounds(partitions, samplePercentage).stream()
+                .distinct()
+                .collect(Collectors.toList());
+        List<ReprojectionCheckpoint> checkpoints = new ArrayList<>();
+        String lowerBound = null;
+        for (int partitionNumber = 0; partitionNumber <= bounds.size(); partitionNumber++) {
+            String upperBound = partitionNumber < bounds.size() ? bounds.get(partitionNumber) : null;
+            checkpoints.add(new ReprojectionCheckpoint(runName, partitionNumber, lowerBound, upperBound, null, 0, false));
+            lowerBound = upperBound;
+        }
+        reprojectionDao.insertCheckpoints(checkpoints);
+
+        LOGGER.info("Starting re-projection run [{}] with {} partitions", runName, checkpoints.size());
+        return checkpoints;
+    }
+
+    public void reprojectPartition(ReprojectionCheckpoint checkpoint, int batchSize, ReprojectionProgress progress) {
+        String afterExternalId = checkpoint.getResumeAfter();
+
+        while (true) {
+            List<String> resourceExternalIds = reprojectionDao.findResourceExternalIds(
+                    afterExternalId, checkpoint.getUpperBound(), batchSize);
+            if (resourceExternalIds.isEmpty()) {
+                reprojectionDao.completeCheckpoint(checkpoint.getRunName(), checkpoint.getPartitionNumber());
+                LOGGER.info("Re-projection of partition {} of run [{}] completed",
+                        checkpoint.getPartitionNumber(), checkpoint.getRunName());
+                return;
+            }
+
+            String lastExternalId = resourceExternalIds.get(resourceExternalIds.size() - 1);
+            List<Event> events = reprojectionDao.findEventsForResourceRange(afterExternalId, lastExternalId);
+            int rowsUpserted = project(events);
+
+            reprojectionDao.updateCheckpoint(checkpoint.getRunName(), checkpoint.getPartitionNumber(),
+                    lastExternalId, resourceExternalIds.size());
+            progress.recordBatch(events.size(), resourceExternalIds.size(), rowsUpserted);
+            afterExternalId = lastExternalId;
+        }
+    }
+
+    /**
+     * @param events the events of several resources, grouped by resource and most recent first within each
+     * @return the number of rows inserted or updated, which leaves out upserts skipped because the row was
+     * already up to date
+     */
+    int project(List<Event> events) {
+        Map<String, EventDigest> digests = digestsByResource(events);
+        Map<String, EventDigest> paymentDigests = paymentDigestsForRefunds(digests);
+
+        List<TransactionEntity> transactions = new ArrayList<>();
+        List<PayoutEntity> payouts = new ArrayList<>();
+        for (EventDigest digest : digests.values()) {
+            switch (digest.getResourceType()) {
+                case PAYMENT:
+                    transactions.add(transactionEntityFactory.create(digest));
+                    break;
+                case REFUND:
+                    EventDigest paymentDigest = isNotBlank(digest.getParentResourceExternalId())
+                            ? paymentDigests.get(digest.getParentResourceExternalId())
+                            : null;
+                    transactions.add(paymentDigest == null
+                            ? transactionEntityFactory.create(digest)
+                            : transactionEntityFactory.createRefund(digest, paymentDigest));
+                    break;
+                case PAYOUT:
+                    payouts.add(payoutEntityFactory.create(digest));
+                    break;
+                default:
+                    LOGGER.debug("Re-projection of resource type [{}] is not supported. Resource external id [{}]",
+                            digest.getResourceType(), digest.getResourceExternalId());
+            }
+        }
+
+        return transactionDao.upsertAll(transactions) + payoutDao.upsertAll(payouts);
+    }
+
+    private Map<String, EventDigest> digestsByResource(List<Event> events) {
+        Map<String, List<Event>> eventsByResource = new LinkedHashMap<>();
+        events.forEach(event ->
+                eventsByResource.computeIfAbsent(event.getResourceExternalId(), id -> new ArrayList<>()).add(event));
+
+        Map<String, EventDigest> digests = new LinkedHashMap<>();
+        eventsByResource.forEach((resourceExternalId, resourceEvents) ->
+                digests.put(resourceExternalId, EventDigest.fromEventList(resourceEvents)));
+        return digests;
+    }
+
+    /**
+     * Finds the digest of the parent payment of every refund, using the digests already built for the page where
+     * possible and loading the events of the remaining payments with a single query.
+     */
+    private Map<String, EventDigest> paymentDigestsForRefunds(Map<String, EventDigest> digests) {
+        Set<String> paymentExternalIds = digests.values().stream()
+                .map(EventDigest::getParentResourceExternalId)
+                .filter(parentExternalId -> isNotBlank(parentExternalId))
+                .collect(Collectors.toSet());
+
+        Map<String, EventDigest> paymentDigests = new LinkedHashMap<>();
+        paymentExternalIds.stream()
+                .filter(digests::containsKey)
+                .forEach(paymentExternalId -> paymentDigests.put(paymentExternalId, digests.get(paymentExternalId)));
+
+        Set<String> paymentExternalIdsToLoad = paymentExternalIds.stream()
+                .filter(paymentExternalId -> !digests.containsKey(paymentExternalId))
+                .collect(Collectors.toSet());
+        if (!paymentExternalIdsToLoad.isEmpty()) {
+            Map<String, List<Event>> paymentEvents = eventDao.findEventsForExternalIds(paymentExternalIdsToLoad).stream()
+                    .collect(Collectors.groupingBy(Event::getResourceExternalId));
+            paymentEvents.forEach((paymentExternalId, eventsOldestFirst) -> {
+                List<Event> eventsMostRecentFirst = new ArrayList<>(eventsOldestFirst);
+                Collections.reverse(eventsMostRecentFirst);
+                paymentDigests.put(paymentExternalId, EventDigest.fromEventList(eventsMostRecentFirst));
+            });
+        }
+        return paymentDigests;
+    }
+}
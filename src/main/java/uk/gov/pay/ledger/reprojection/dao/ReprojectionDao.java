@@ -0,0 +1,152 @@
+package uk.gov.pay.ledger.reprojection.dao;
+
+import com.google.inject.Inject;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.Query;
+import uk.gov.pay.ledger.event.dao.mapper.EventMapper;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.reprojection.dao.mapper.ReprojectionCheckpointMapper;
+import uk.gov.pay.ledger.reprojection.model.ReprojectionCheckpoint;
+
+import java.util.List;
+
+public class ReprojectionDao {
+
+    private static final String SELECT_PARTITION_BOUNDS = "SELECT unnest(percentile_disc(" +
+            "ARRAY(SELECT g::float8 / :partitions FROM generate_series(1, :partitions - 1) g)" +
+            ") WITHIN GROUP (ORDER BY resource_external_id)) " +
+            "FROM event TABLESAMPLE SYSTEM (CAST(:samplePercentage AS real)) " +
+            "WHERE resource_external_id IS NOT NULL";
+
+    private static final String SELECT_RESOURCE_EXTERNAL_IDS = "SELECT DISTINCT resource_external_id FROM event " +
+            "WHERE resource_external_id IS NOT NULL " +
+            ":rangeFilter " +
+            "ORDER BY resource_external_id LIMIT :limit";
+
+    private static final String SELECT_EVENTS_FOR_RESOURCE_RANGE = "SELECT e.id, e.sqs_message_id, rt.name AS resource_type_name, " +
+            "e.resource_external_id, e.parent_resource_external_id, e.event_date, e.event_type, e.event_data " +
+            "FROM event e JOIN resource_type rt ON e.resource_type_id = rt.id " +
+            "WHERE e.resource_external_id IS NOT NULL " +
+            ":rangeFilter " +
+            "ORDER BY e.resource_external_id, e.event_date DESC";
+
+    private static final String SELECT_CHECKPOINTS = "SELECT * FROM reprojection_checkpoint " +
+            "WHERE run_name = :runName ORDER BY partition_number";
+
+    private static final String INSERT_CHECKPOINT = "INSERT INTO reprojection_checkpoint " +
+            "(run_name, partition_number, lower_bound, upper_bound) " +
+            "VALUES (:runName, :partitionNumber, :lowerBound, :upperBound)";
+
+    private static final String UPDATE_CHECKPOINT = "UPDATE reprojection_checkpoint SET " +
+            "last_resource_external_id = :lastResourceExternalId, " +
+            "resources_projected = resources_projected + :resourcesProjected, " +
+            "updated_date = now() " +
+            "WHERE run_name = :runName AND partition_number = :partitionNumber";
+
+    private static final String COMPLETE_CHECKPOINT = "UPDATE reprojection_checkpoint SET " +
+            "completed = true, updated_date = now() " +
+            "WHERE run_name = :runName AND partition_number = :partitionNumber";
+
+    private static final String DELETE_CHECKPOINTS = "DELETE FROM reprojection_checkpoint WHERE run_name = :runName";
+
+    private final Jdbi jdbi;
+
+    @Inject
+    public ReprojectionDao(Jdbi jdbi) {
+        this.jdbi = jdbi;
+    }
+
+    /**
+     * Estimates, from a sample of the event table, the resource external ids that split the events into the given
+     * number of partitions of roughly equal size. Fewer bounds are returned when the sample is too small.
+     */
+    public List<String> findPartitionBounds(int partitions, double samplePercentage) {
+        return jdbi.withHandle(handle -> handle.createQuery(SELECT_PARTITION_BOUNDS)
+                .bind("partitions", partitions)
+                .bind("samplePercentage", samplePercentage)
+                .mapTo(String.class)
+                .list());
+    }
+
+    public List<String> findResourceExternalIds(String afterExternalId, String upToExternalId, int limit) {
+        return jdbi.withHandle(handle -> {
+            Query query = handle.createQuery(withRangeFilter(SELECT_RESOURCE_EXTERNAL_IDS, "resource_external_id",
+                    afterExternalId, upToExternalId));
+            bindRange(query, afterExternalId, upToExternalId);
+            return query.bind("limit", limit)
+                    .mapTo(String.class)
+                    .list();
+        });
+    }
+
+    /**
+     * @return the events of every resource in the range, grouped by resource and most recent first within each
+     */
+    public List<Event> findEventsForResourceRange(String afterExternalId, String upToExternalId) {
+        return jdbi.withHandle(handle -> {
+            Query query = handle.createQuery(withRangeFilter(SELECT_EVENTS_FOR_RESOURCE_RANGE, "e.resource_external_id",
+                    afterExternalId, upToExternalId));
+            bindRange(query, afterExternalId, upToExternalId);
+            return query.map(new EventMapper())
+                    .list();
+        });
+    }
+
+    public List<ReprojectionCheckpoint> findCheckpoints(String runName) {
+        return jdbi.withHandle(handle -> handle.createQuery(SELECT_CHECKPOINTS)
+                .bind("runName", runName)
+                .map(new ReprojectionCheckpointMapper())
+                .list());
+    }
+
+    public void insertCheckpoints(List<ReprojectionCheckpoint> checkpoints) {
+        jdbi.useTransaction(handle -> {
+            PreparedBatch batch = handle.prepareBatch(INSERT_CHECKPOINT);
+            checkpoints.forEach(checkpoint -> batch.bindBean(checkpoint).add());
+            batch.execute();
+        });
+    }
+
+    public void updateCheckpoint(String runName, int partitionNumber, String lastResourceExternalId, long resourcesProjected) {
+        jdbi.useHandle(handle -> handle.createUpdate(UPDATE_CHECKPOINT)
+                .bind("runName", runName)
+                .bind("partitionNumber", partitionNumber)
+                .bind("lastResourceExternalId", lastResourceExternalId)
+                .bind("resourcesProjected", resourcesProjected)
+                .execute());
+    }
+
+    public void completeCheckpoint(String runName, int partitionNumber) {
+        jdbi.useHandle(handle -> handle.createUpdate(COMPLETE_CHECKPOINT)
+                .bind("runName", runName)
+                .bind("partitionNumber", partitionNumber)
+                .execute());
+    }
+
+    public void deleteCheckpoints(String runName) {
+        jdbi.useHandle(handle -> handle.createUpdate(DELETE_CHECKPOINTS)
+                .bind("runName", runName)
+                .execute());
+    }
+
+    private String withRangeFilter(String baseQueryString, String column, String afterExternalId, String upToExternalId) {
+        String rangeFilter = "";
+        if (afterExternalId != null) {
+            rangeFilter += "AND " + column + " > :afterExternalId ";
+        }
+        if (upToExternalId != null) {
+            rangeFilter += "AND " + column + " <= :upToExternalId ";
+        }
+        return baseQueryString.replace(":rangeFilter", rangeFilter);
+    }
+
+    private void bindRange(Query query, String afterExternalId, String upToExternalId) {
+        if (afterExternalId != null) {
+            query.bind("afterExternalId", afterExternalId);
+        }
+        if (upToExternalId != null) {
+            query.bind("upToExternalId", upToExternalId);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.pay.ledger.reprojection.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.ledger.reprojection.model.ReprojectionCheckpoint;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ReprojectionCheckpointMapper implements RowMapper<ReprojectionCheckpoint> {
+
+    @Override
+    public ReprojectionCheckpoint map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return new ReprojectionCheckpoint(
+                rs.getString("run_name"),
+                rs.getInt("partition_number"),
+                rs.getString("lower_bound"),
+                rs.getString("upper_bound"),
+                rs.getString("last_resource_external_id"),
+                rs.getLong("resources_projected"),
+                rs.getBoolean("completed"));
+    }
+}
@@ -0,0 +1,63 @@
+package uk.gov.pay.ledger.reprojection.model;
+
+/**
+ * The progress of one partition of a re-projection run. A partition covers the resources whose external ids are
+ * after its lower bound and up to and including its upper bound; a missing bound means the partition is unbounded on
+ * that side.
+ */
+public class ReprojectionCheckpoint {
+
+    private final String runName;
+    private final int partitionNumber;
+    private final String lowerBound;
+    private final String upperBound;
+    private final String lastResourceExternalId;
+    private final long resourcesProjected;
+    private final boolean completed;
+
+    public ReprojectionCheckpoint(String runName, int partitionNumber, String lowerBound, String upperBound,
+                                  String lastResourceExternalId, long resourcesProjected, boolean completed) {
+        this.runName = runName;
+        this.partitionNumber = partitionNumber;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.lastResourceExternalId = lastResourceExternalId;
+        this.resourcesProjected = resourcesProjected;
+        this.completed = completed;
+    }
+
+    public String getRunName() {
+        return runName;
+    }
+
+    public int getPartitionNumber() {
+        return partitionNumber;
+    }
+
+    public String getLowerBound() {
+        return lowerBound;
+    }
+
+    public String getUpperBound() {
+        return upperBound;
+    }
+
+    public String getLastResourceExternalId() {
+        return lastResourceExternalId;
+    }
+
+    public long getResourcesProjected() {
+        return resourcesProjected;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the external id that the partition should resume after
+     */
+    public String getResumeAfter() {
+        return lastResourceExternalId != null ? lastResourceExternalId : lowerBound;
+    }
+}
@@ -3,6 +3,7 @@ package uk.gov.pay.ledger.transaction.dao;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
 import uk.gov.pay.ledger.transaction.dao.mapper.TransactionMapper;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
@@ -14,6 +15,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -130,7 +132,8 @@ public class TransactionDao {
                     "moto, " +
                     "gateway_transaction_id, " +
                     "source, " +
-                    "gateway_payout_id" +
+                    "gateway_payout_id, " +
+                    "projection_fingerprint" +
                     ") " +
                     "VALUES (" +
                     ":externalId," +
@@ -159,7 +162,8 @@ public class TransactionDao {
                     ":moto, " +
                     ":gatewayTransactionId, " +
                     ":source::source, " +
-                    ":gatewayPayoutId" +
+                    ":gatewayPayoutId, " +
+                    ":projectionFingerprint" +
                     ") " +
                     "ON CONFLICT (external_id) " +
                     "DO UPDATE SET " +
@@ -173,7 +177,8 @@ public class TransactionDao {
                     "email = EXCLUDED.email," +
                     "cardholder_name = EXCLUDED.cardholder_name," +
                     "created_date = EXCLUDED.created_date," +
-                    "transaction_details = EXCLUDED.transaction_details," +
+                    "transaction_details = CASE WHEN transaction.projection_fingerprint IS DISTINCT FROM EXCLUDED.projection_fingerprint " +
+                    "THEN EXCLUDED.transaction_details ELSE transaction.transaction_details END," +
                     "event_count = EXCLUDED.event_count," +
                     "card_brand = EXCLUDED.card_brand," +
                     "last_digits_card_number = EXCLUDED.last_digits_card_number," +
@@ -189,8 +194,11 @@ public class TransactionDao {
                     "moto = EXCLUDED.moto, " +
                     "gateway_transaction_id = EXCLUDED.gateway_transaction_id, " +
                     "source = EXCLUDED.source, " +
-                    "gateway_payout_id = EXCLUDED.gateway_payout_id " +
-                    "WHERE EXCLUDED.event_count >= transaction.event_count;";
+                    "gateway_payout_id = EXCLUDED.gateway_payout_id, " +
+                    "projection_fingerprint = EXCLUDED.projection_fingerprint " +
+                    "WHERE EXCLUDED.event_count > transaction.event_count " +
+                    "OR (EXCLUDED.event_count = transaction.event_count " +
+                    "AND transaction.projection_fingerprint IS DISTINCT FROM EXCLUDED.projection_fingerprint);";
 
     private static final String GET_SOURCE_TYPE_ENUM_VALUES =
             "SELECT " +
@@ -357,11 +365,34 @@ public class TransactionDao {
         };
     }
 
-    public void upsert(TransactionEntity transaction) {
-        jdbi.withHandle(handle ->
+    /**
+     * Inserts or updates the transaction, leaving the stored row untouched if it was projected from more events, or
+     * from as many events with an unchanged projection fingerprint. When only the event count has moved on, the stored
+     * transaction details are kept rather than rewritten, though PostgreSQL still writes a new version of the row.
+     *
+     * @return whether the row was written
+     */
+    public boolean upsert(TransactionEntity transaction) {
+        return jdbi.withHandle(handle ->
                 handle.createUpdate(UPSERT_STRING)
                         .bindBean(transaction)
-                        .execute());
+                        .execute()) > 0;
+    }
+
+    /**
+     * Upserts the transactions as a single JDBC batch.
+     *
+     * @return the number of rows written
+     */
+    public int upsertAll(List<TransactionEntity> transactions) {
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+        return jdbi.withHandle(handle -> {
+            PreparedBatch batch = handle.prepareBatch(UPSERT_STRING);
+            transactions.forEach(transaction -> batch.bindBean(transaction).add());
+            return IntStream.of(batch.execute()).sum();
+        });
     }
 
     public List<String> getSourceTypeValues() {
@@ -2,19 +2,29 @@ package uk.gov.pay.ledger.transaction.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import uk.gov.pay.commons.model.Source;
 import uk.gov.pay.ledger.payout.entity.PayoutEntity;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
 
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 public class TransactionEntity {
 
+    private static final ObjectMapper CANONICAL_JSON = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
     @JsonIgnore
     private Long id;
     private String gatewayAccountId;
@@ -240,6 +250,41 @@ public class TransactionEntity {
         this.email = paymentTransaction.email;
     }
 
+    /**
+     * A hash of every column this entity is projected to except its event count, so that an upsert can tell whether
+     * a projection changes anything other than the event count. The transaction details are hashed with their keys
+     * sorted, as the order they were serialised in depends on the map they were built from.
+     */
+    @JsonIgnore
+    public String getProjectionFingerprint() {
+        Hasher hasher = Hashing.sha256().newHasher();
+        Stream.of(externalId, parentExternalId, gatewayAccountId, amount, description, reference, state, email,
+                cardholderName, createdDate == null ? null : createdDate.toInstant(), canonicalTransactionDetails(), cardBrand,
+                lastDigitsCardNumber, firstDigitsCardNumber, netAmount, totalAmount, fee, transactionType,
+                refundAmountAvailable, refundAmountRefunded, refundStatus, live, moto, gatewayTransactionId, source,
+                gatewayPayoutId)
+                .forEach(value -> {
+                    if (value == null) {
+                        hasher.putInt(-1);
+                    } else {
+                        String text = value.toString();
+                        hasher.putInt(text.length()).putString(text, StandardCharsets.UTF_8);
+                    }
+                });
+        return hasher.hash().toString();
+    }
+
+    private String canonicalTransactionDetails() {
+        if (transactionDetails == null) {
+            return null;
+        }
+        try {
+            return CANONICAL_JSON.writeValueAsString(CANONICAL_JSON.readValue(transactionDetails, Object.class));
+        } catch (JsonProcessingException e) {
+            return transactionDetails;
+        }
+    }
+
     public static class Builder {
         private Long fee;
         private Long id;
@@ -11,7 +11,6 @@ import org.slf4j.LoggerFactory;
 import uk.gov.pay.commons.api.json.ApiResponseDateTimeSerializer;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.ResourceType;
-import uk.gov.pay.ledger.event.model.SalientEventType;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.state.ExternalTransactionState;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
@@ -19,6 +18,7 @@ import uk.gov.pay.ledger.transaction.state.TransactionState;
 import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.Map;
+import java.util.Optional;
 
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 public class TransactionEvent {
@@ -47,8 +47,7 @@ public class TransactionEvent {
 
     public static TransactionEvent from(TransactionEntity transactionEntity, Event event, ObjectMapper objectMapper, int statusVersion) {
         try {
-            ExternalTransactionState state = SalientEventType.from(event.getEventType())
-                    .map(TransactionState::fromEventType)
+            ExternalTransactionState state = Optional.ofNullable(TransactionState.fromEventTypeName(event.getEventType()))
                     .map(s -> ExternalTransactionState.from(s, statusVersion))
                     .orElse(null);
 
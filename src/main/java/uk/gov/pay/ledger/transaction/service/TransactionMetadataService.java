@@ -1,20 +1,19 @@
 package uk.gov.pay.ledger.transaction.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import jersey.repackaged.com.google.common.base.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.ledger.event.model.Event;
-import uk.gov.pay.ledger.metadatakey.dao.MetadataKeyDao;
+import uk.gov.pay.ledger.referencedata.ReferenceDataCache;
 import uk.gov.pay.ledger.transaction.dao.TransactionDao;
 import uk.gov.pay.ledger.transaction.search.common.TransactionSearchParams;
 import uk.gov.pay.ledger.transactionmetadata.dao.TransactionMetadataDao;
 
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
@@ -23,37 +22,54 @@ public class TransactionMetadataService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionMetadataService.class);
     private final TransactionDao transactionDao;
-    private final MetadataKeyDao metadataKeyDao;
+    private final ReferenceDataCache referenceDataCache;
     private final TransactionMetadataDao transactionMetadataDao;
 
     @Inject
-    public TransactionMetadataService(MetadataKeyDao metadataKeyDao,
+    public TransactionMetadataService(ReferenceDataCache referenceDataCache,
                                       TransactionMetadataDao transactionMetadataDao,
                                       TransactionDao transactionDao) {
-        this.metadataKeyDao = metadataKeyDao;
+        this.referenceDataCache = referenceDataCache;
         this.transactionMetadataDao = transactionMetadataDao;
         this.transactionDao = transactionDao;
     }
 
     public void upsertMetadataFor(Event event) {
-        JsonNode eventDataNode;
+        externalMetadataOf(event).ifPresent(externalMetadata ->
+                transactionDao.findTransactionByExternalId(event.getResourceExternalId())
+                        .ifPresent(transactionEntity -> {
+                            Set<?> metadataKeys = externalMetadata.keySet();
+                            metadataKeys.forEach(key -> {
+                                String metadataKey = String.valueOf(key);
+                                long metadataKeyId = referenceDataCache.getOrCreateMetadataKeyId(metadataKey);
+                                transactionMetadataDao
+                                        .insertIfNotExist(transactionEntity.getId(), metadataKeyId);
+                            });
+                        }));
+    }
+
+    /**
+     * Inserts and caches the ids of any metadata keys the events introduce. Called before the unit of work that
+     * projects the events is opened, so that {@link #upsertMetadataFor(Event)} finds every key id in the cache.
+     */
+    public void resolveMetadataKeysFor(List<Event> events) {
+        events.forEach(event -> externalMetadataOf(event)
+                .ifPresent(externalMetadata -> externalMetadata.keySet()
+                        .forEach(key -> referenceDataCache.getOrCreateMetadataKeyId(String.valueOf(key)))));
+    }
+
+    private Optional<Map<?, ?>> externalMetadataOf(Event event) {
+        Object externalMetadata;
         try {
-            eventDataNode = new ObjectMapper().readTree(event.getEventData());
-        } catch (JsonProcessingException e) {
+            externalMetadata = event.getEventDataMap().get("external_metadata");
+        } catch (RuntimeException e) {
             LOGGER.error("Unable to parse incoming event payload: {}", e.getMessage());
-            return;
+            return Optional.empty();
         }
-        if (eventDataNode != null && eventDataNode.has("external_metadata")) {
-            transactionDao.findTransactionByExternalId(event.getResourceExternalId())
-                    .ifPresent(transactionEntity -> {
-                        Iterator<String> metadataKeys = eventDataNode.get("external_metadata").fieldNames();
-                        metadataKeys.forEachRemaining(metadataKey -> {
-                            metadataKeyDao.insertIfNotExist(metadataKey);
-                            transactionMetadataDao
-                                    .insertIfNotExist(transactionEntity.getId(), metadataKey);
-                        });
-                    });
+        if (externalMetadata instanceof Map) {
+            return Optional.of((Map<?, ?>) externalMetadata);
         }
+        return Optional.empty();
     }
 
     public List<String> findMetadataKeysForTransactions(TransactionSearchParams searchParams) {
@@ -1,5 +1,7 @@
 package uk.gov.pay.ledger.transaction.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
@@ -47,17 +49,19 @@ public class TransactionService {
     private TransactionFactory transactionFactory;
     private CsvTransactionFactory csvTransactionFactory;
     private ObjectMapper objectMapper;
+    private final Counter skippedUpserts;
 
     @Inject
     public TransactionService(TransactionDao transactionDao, EventDao eventDao, TransactionEntityFactory transactionEntityFactory,
                               TransactionFactory transactionFactory, CsvTransactionFactory csvTransactionFactory,
-                              ObjectMapper objectMapper) {
+                              ObjectMapper objectMapper, MetricRegistry metricRegistry) {
         this.transactionDao = transactionDao;
         this.eventDao = eventDao;
         this.transactionEntityFactory = transactionEntityFactory;
         this.transactionFactory = transactionFactory;
         this.csvTransactionFactory = csvTransactionFactory;
         this.objectMapper = objectMapper;
+        this.skippedUpserts = metricRegistry.counter("transaction.upsert.skipped");
     }
 
     public Optional<TransactionView> getTransactionForGatewayAccount(String gatewayAccountId, String transactionExternalId,
@@ -149,11 +153,17 @@ public class TransactionService {
 
     public void upsertTransactionFor(EventDigest eventDigest) {
         TransactionEntity transaction = transactionEntityFactory.create(eventDigest);
-        transactionDao.upsert(transaction);
+        upsertTransaction(transaction);
     }
 
     public void upsertTransaction(TransactionEntity transaction) {
-        transactionDao.upsert(transaction);
+        if (!transactionDao.upsert(transaction)) {
+            skippedUpserts.inc();
+        }
+    }
+
+    public void upsertTransactions(List<TransactionEntity> transactions) {
+        skippedUpserts.inc(transactions.size() - transactionDao.upsertAll(transactions));
     }
 
     public TransactionEventResponse findTransactionEvents(String externalId, String gatewayAccountId,
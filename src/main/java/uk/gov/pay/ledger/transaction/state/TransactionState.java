@@ -119,10 +119,22 @@ public enum TransactionState {
                     Map.entry(SalientEventType.REFUND_STATUS_CORRECTED_TO_SUCCESS_BY_ADMIN, SUCCESS)
             );
 
+    private static final Map<String, TransactionState> EVENT_TYPE_NAME_TRANSACTION_STATE_MAP =
+            EVENT_TYPE_TRANSACTION_STATE_MAP.entrySet().stream()
+                    .collect(Collectors.toMap(entry -> entry.getKey().name(), Map.Entry::getValue));
+
     public static TransactionState fromEventType(SalientEventType salientEventType) {
         return EVENT_TYPE_TRANSACTION_STATE_MAP.get(salientEventType);
     }
 
+    /**
+     * @return the state a transaction is in after an event of the given type, or null if the event type does not
+     * change the state
+     */
+    public static TransactionState fromEventTypeName(String eventType) {
+        return eventType == null ? null : EVENT_TYPE_NAME_TRANSACTION_STATE_MAP.get(eventType);
+    }
+
     public static TransactionState from(String transactionState) {
         return stream(values()).filter(v -> v.name().equals(transactionState)).findFirst()
                 .orElseGet(() -> {
@@ -25,6 +25,14 @@ public class TransactionMetadataDao {
             "    WHERE metadata_key_id in (select id from metadata_key where key = :key ) " +
             "      and transaction_id = :transactionId)";
 
+    private static final String INSERT_WITH_METADATA_KEY_ID = "INSERT INTO transaction_metadata(transaction_id, metadata_key_id) " +
+            "SELECT :transactionId, :metadataKeyId " +
+            "WHERE NOT EXISTS ( " +
+            "    SELECT 1 " +
+            "    FROM transaction_metadata " +
+            "    WHERE metadata_key_id = :metadataKeyId " +
+            "      and transaction_id = :transactionId)";
+
     private final Jdbi jdbi;
 
     @Inject
@@ -42,6 +50,16 @@ public class TransactionMetadataDao {
         );
     }
 
+    public void insertIfNotExist(Long transactionId,
+                                 long metadataKeyId) {
+        jdbi.withHandle(handle ->
+                handle.createUpdate(INSERT_WITH_METADATA_KEY_ID)
+                        .bind("transactionId", transactionId)
+                        .bind("metadataKeyId", metadataKeyId)
+                        .execute()
+        );
+    }
+
     public List<String> findMetadataKeysForTransactions(TransactionSearchParams searchParams) {
         return jdbi.withHandle(handle -> {
 
@@ -46,6 +46,14 @@ public class JsonParser {
         return Optional.ofNullable(object.get(fieldName));
     }
 
+    public static Map<String, Object> jsonNodeToMap(JsonNode jsonNode) {
+        try {
+            return (Map<String, Object>) objectMapper.convertValue(jsonNode, Map.class);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new RuntimeException("Error converting event Json to Map");
+        }
+    }
+
     public static Map<String, Object> jsonStringToMap(String jsonString) {
         try {
             return (Map<String, Object>) objectMapper.readValue(jsonString, Map.class);
@@ -0,0 +1,26 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:delete_duplicate_events runInTransaction:false splitStatements:false
+-- Deletes the later copies of duplicate events in batches of ids, committing after each batch so that no single
+-- transaction holds locks on, or generates WAL for, the whole table.
+DO $$
+DECLARE
+    batch_size CONSTANT BIGINT := 10000;
+    batch_start BIGINT;
+    last_id BIGINT;
+BEGIN
+    SELECT min(id), max(id) INTO batch_start, last_id FROM event;
+    WHILE batch_start <= last_id LOOP
+        DELETE FROM event e
+        USING event duplicate
+        WHERE e.resource_external_id = duplicate.resource_external_id
+          AND e.resource_type_id = duplicate.resource_type_id
+          AND e.event_date = duplicate.event_date
+          AND e.event_type = duplicate.event_type
+          AND e.id > duplicate.id
+          AND e.id >= batch_start
+          AND e.id < batch_start + batch_size;
+        COMMIT;
+        batch_start := batch_start + batch_size;
+    END LOOP;
+END $$;
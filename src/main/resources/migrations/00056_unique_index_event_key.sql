@@ -0,0 +1,38 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:drop_invalid_unique_index_event_key runAlways:true runInTransaction:false splitStatements:false
+--preconditions onFail:CONTINUE
+--precondition-sql-check expectedResult:1 SELECT count(*) FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = 'event_unique_key_idx' AND NOT i.indisvalid
+-- A duplicate event inserted while event_unique_key_idx is being built concurrently makes the build fail and leaves
+-- the index INVALID, and IF NOT EXISTS would then skip building it again. When that has happened the invalid index
+-- is dropped and the events are deduplicated again, in batches as in delete_duplicate_events, so that the next
+-- changeset can build the index.
+DO $$
+DECLARE
+    batch_size CONSTANT BIGINT := 10000;
+    batch_start BIGINT;
+    last_id BIGINT;
+BEGIN
+    DROP INDEX IF EXISTS event_unique_key_idx;
+    COMMIT;
+
+    SELECT min(id), max(id) INTO batch_start, last_id FROM event;
+    WHILE batch_start <= last_id LOOP
+        DELETE FROM event e
+        USING event duplicate
+        WHERE e.resource_external_id = duplicate.resource_external_id
+          AND e.resource_type_id = duplicate.resource_type_id
+          AND e.event_date = duplicate.event_date
+          AND e.event_type = duplicate.event_type
+          AND e.id > duplicate.id
+          AND e.id >= batch_start
+          AND e.id < batch_start + batch_size;
+        COMMIT;
+        batch_start := batch_start + batch_size;
+    END LOOP;
+END $$;
+
+--changeset uk.gov.pay:unique_index_event_key runInTransaction:false
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS event_unique_key_idx
+    ON event(resource_external_id, resource_type_id, event_date, event_type);
+--rollback drop index CONCURRENTLY event_unique_key_idx;
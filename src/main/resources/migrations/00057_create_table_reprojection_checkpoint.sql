@@ -0,0 +1,16 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_table_reprojection_checkpoint
+CREATE TABLE reprojection_checkpoint
+(
+    run_name VARCHAR(255) NOT NULL,
+    partition_number INT NOT NULL,
+    lower_bound VARCHAR(255),
+    upper_bound VARCHAR(255),
+    last_resource_external_id VARCHAR(255),
+    resources_projected BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    PRIMARY KEY (run_name, partition_number)
+);
+--rollback drop table reprojection_checkpoint;
@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_table_quarantined_message
+CREATE TABLE quarantined_message
+(
+    id BIGSERIAL PRIMARY KEY,
+    sqs_message_id VARCHAR(255) NOT NULL,
+    resource_external_id VARCHAR(255),
+    event_type VARCHAR(100),
+    message_body TEXT NOT NULL,
+    error_message TEXT,
+    attempts INT NOT NULL DEFAULT 1,
+    parked BOOLEAN NOT NULL DEFAULT FALSE,
+    first_failed_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    last_failed_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    CONSTRAINT quarantined_message_sqs_message_id_key UNIQUE (sqs_message_id)
+);
+
+CREATE INDEX quarantined_message_parked_idx ON quarantined_message(parked, id);
+--rollback drop table quarantined_message;
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_table_resource_digest
+CREATE TABLE resource_digest
+(
+    resource_external_id VARCHAR(255) PRIMARY KEY,
+    resource_type VARCHAR(50),
+    parent_resource_external_id VARCHAR(255),
+    event_count INT NOT NULL DEFAULT 0,
+    event_payload JSONB,
+    most_recent_event_date TIMESTAMP WITH TIME ZONE,
+    most_recent_salient_event_type VARCHAR(100),
+    salient_event_types JSONB,
+    earliest_event_date TIMESTAMP WITH TIME ZONE,
+    updated_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL
+);
+--rollback drop table resource_digest;
@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_projection_fingerprint_to_transaction_table
+ALTER TABLE transaction ADD COLUMN projection_fingerprint VARCHAR(64);
+
+--rollback ALTER TABLE transaction DROP COLUMN projection_fingerprint;
@@ -135,6 +135,37 @@ public class EventDaoIT {
         assertThat(objectMapper.readTree(result.get("event_data").toString()), is(objectMapper.readTree(event.getEventData())));
     }
 
+    @Test
+    public void shouldInsertBatchOfEventsAndReportDuplicatesPerEvent() {
+        Event existingEvent = anEventFixture()
+                .withEventDate(CREATED_AT)
+                .insert(rule.getJdbi())
+                .toEntity();
+        Event duplicateEvent = anEventFixture()
+                .from(existingEvent)
+                .withSQSMessageId(RandomStringUtils.randomAlphanumeric(50))
+                .toEntity();
+        Event newEvent = anEventFixture()
+                .withEventDate(CREATED_AT)
+                .toEntity();
+        Event duplicateOfNewEventInSameBatch = anEventFixture()
+                .from(newEvent)
+                .withSQSMessageId(RandomStringUtils.randomAlphanumeric(50))
+                .toEntity();
+
+        int resourceTypeId = resourceTypeDao.getResourceTypeIdByName(existingEvent.getResourceType().name());
+        int[] insertCounts = eventDao.insertAllIfDoesNotExist(
+                List.of(duplicateEvent, newEvent, duplicateOfNewEventInSameBatch),
+                List.of(resourceTypeId, resourceTypeId, resourceTypeId));
+
+        assertThat(insertCounts.length, is(3));
+        assertThat(insertCounts[0], is(0));
+        assertThat(insertCounts[1], is(1));
+        assertThat(insertCounts[2], is(0));
+        assertThat(dbHelper.getEventsCountByExternalId(existingEvent.getResourceExternalId()), is(1));
+        assertThat(dbHelper.getEventsCountByExternalId(newEvent.getResourceExternalId()), is(1));
+    }
+
     @Test
     public void shouldFindEvent() {
         Event event = anEventFixture()
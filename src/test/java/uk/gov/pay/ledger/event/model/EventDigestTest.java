@@ -4,10 +4,13 @@ import org.junit.jupiter.api.Test;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
 
 public class EventDigestTest {
@@ -54,4 +57,73 @@ public class EventDigestTest {
 
         assertThat(eventDigest.getParentResourceExternalId(), is(nullValue()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void foldingANewerEventShouldMatchRebuildingFromAllEvents() {
+        Event createdEvent = anEventFixture()
+                .withEventDate(ZonedDateTime.parse("2020-01-01T10:00:00Z"))
+                .withEventType("PAYMENT_CREATED")
+                .withEventData("{\"amount\": 1000, \"description\": \"a payment\"}")
+                .toEntity();
+        Event notificationEvent = anEventFixture()
+                .withResourceExternalId(createdEvent.getResourceExternalId())
+                .withEventDate(ZonedDateTime.parse("2020-01-01T10:01:00Z"))
+                .withEventType("A_NON_SALIENT_EVENT")
+                .withEventData("{\"amount\": 2000}")
+                .toEntity();
+
+        EventDigest folded = EventDigest.fromEventList(List.of(createdEvent)).fold(notificationEvent);
+        EventDigest rebuilt = EventDigest.fromEventList(List.of(notificationEvent, createdEvent));
+
+        assertThat(folded.getEventCount(), is(rebuilt.getEventCount()));
+        assertThat(folded.getMostRecentEventTimestamp(), is(rebuilt.getMostRecentEventTimestamp()));
+        assertThat(folded.getMostRecentSalientEventType(), is(rebuilt.getMostRecentSalientEventType()));
+        assertThat(folded.getSalientEventTypes(), is(rebuilt.getSalientEventTypes()));
+        assertThat(folded.getEventCreatedDate(), is(rebuilt.getEventCreatedDate()));
+        assertThat(folded.getEventPayload(), is(rebuilt.getEventPayload()));
+    }
+
+    @Test
+    public void shouldParseEventDataOnceAndShareIt() {
+        Event event = anEventFixture()
+                .withEventData("{\"amount\": 1000}")
+                .toEntity();
+
+        Map<String, Object> eventDataMap = event.getEventDataMap();
+        EventDigest eventDigest = EventDigest.fromEventList(List.of(event));
+
+        assertThat(event.getEventDataMap(), is(sameInstance(eventDataMap)));
+        assertThat(eventDigest.getEventPayload().get("amount"), is(1000));
+    }
+
+    @Test
+    public void shouldTakeEachPayloadFieldFromTheMostRecentEventWithItAndTheEarliestEventDate() {
+        ZonedDateTime earliestEventDate = ZonedDateTime.now().minusHours(2L);
+        Event latestEvent = anEventFixture()
+                .withEventType("CAPTURE_CONFIRMED")
+                .withEventDate(ZonedDateTime.now())
+                .withEventData("{\"amount\": 2000, \"fee\": null}")
+                .toEntity();
+        Event nonSalientEvent = anEventFixture()
+                .withEventType("REFUND_AVAILABILITY_UPDATED")
+                .withEventDate(ZonedDateTime.now().minusHours(1L))
+                .withEventData("{\"fee\": 5}")
+                .toEntity();
+        Event earliestEvent = anEventFixture()
+                .withEventType("PAYMENT_CREATED")
+                .withEventDate(earliestEventDate)
+                .withEventData("{\"amount\": 1000, \"description\": \"a payment\"}")
+                .toEntity();
+
+        EventDigest eventDigest = EventDigest.fromEventList(List.of(latestEvent, nonSalientEvent, earliestEvent));
+
+        assertThat(eventDigest.getEventPayload().get("amount"), is(2000));
+        assertThat(eventDigest.getEventPayload().containsKey("fee"), is(true));
+        assertThat(eventDigest.getEventPayload().get("fee"), is(nullValue()));
+        assertThat(eventDigest.getEventPayload().get("description"), is("a payment"));
+        assertThat(eventDigest.getEventCreatedDate(), is(earliestEventDate));
+        assertThat(eventDigest.getMostRecentSalientEventType().get(), is(SalientEventType.CAPTURE_CONFIRMED));
+        assertThat(eventDigest.getSalientEventTypes(), is(Set.of(SalientEventType.CAPTURE_CONFIRMED, SalientEventType.PAYMENT_CREATED)));
+        assertThat(eventDigest.getEventCount(), is(3));
+    }
+}
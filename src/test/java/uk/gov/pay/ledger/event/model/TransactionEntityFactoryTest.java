@@ -159,4 +159,71 @@ public class TransactionEntityFactoryTest {
         assertThat(transactionEntity.getSource(), is(nullValue()));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void create_ShouldMapPayloadTheSameWayAsJackson() throws IOException {
+        Event paymentCreatedEvent = aQueuePaymentEventFixture()
+                .withEventType(SalientEventType.PAYMENT_CREATED.name())
+                .withSource(Source.CARD_API)
+                .withDefaultEventDataForEventType(SalientEventType.PAYMENT_CREATED.name())
+                .withResourceType(ResourceType.PAYMENT)
+                .toEntity();
+        Event paymentDetailsEvent = aQueuePaymentEventFixture()
+                .withEventType("PAYMENT_DETAILS_ENTERED")
+                .withDefaultEventDataForEventType("PAYMENT_DETAILS_ENTERED")
+                .withResourceType(ResourceType.PAYMENT)
+                .toEntity();
+        Event captureConfirmedEvent = aQueuePaymentEventFixture()
+                .withEventType("CAPTURE_CONFIRMED")
+                .withEventData("{\"net_amount\": 55, \"total_amount\": 105, \"fee\": 33, \"moto\": true}")
+                .withResourceType(ResourceType.PAYMENT)
+                .toEntity();
+        EventDigest eventDigest = EventDigest.fromEventList(List.of(captureConfirmedEvent, paymentDetailsEvent,
+                paymentCreatedEvent));
+
+        TransactionEntity transactionEntity = transactionEntityFactory.create(eventDigest);
+        TransactionEntity jacksonEntity = objectMapper.convertValue(eventDigest.getEventPayload(), TransactionEntity.class);
+
+        assertSameMappedFields(transactionEntity, jacksonEntity);
+        assertThat(objectMapper.readTree(transactionEntity.getTransactionDetails()),
+                is(objectMapper.readTree(objectMapper.writeValueAsString(eventDigest.getEventPayload()))));
+    }
+
+    @Test
+    public void create_ShouldFallBackToJacksonForValuesItDoesNotMapDirectly() throws IOException {
+        Event paymentCreatedEvent = aQueuePaymentEventFixture()
+                .withEventType("PAYMENT_CREATED")
+                .withEventData("{\"amount\": \"50\", \"reference\": 1234, \"live\": true}")
+                .toEntity();
+
+        EventDigest eventDigest = EventDigest.fromEventList(List.of(paymentCreatedEvent));
+        TransactionEntity transactionEntity = transactionEntityFactory.create(eventDigest);
+
+        assertThat(transactionEntity.getAmount(), is(50L));
+        assertThat(transactionEntity.getReference(), is("1234"));
+        assertThat(transactionEntity.isLive(), is(true));
+        assertThat(objectMapper.readTree(transactionEntity.getTransactionDetails()).get("amount").asText(), is("50"));
+    }
+
+    private static void assertSameMappedFields(TransactionEntity actual, TransactionEntity expected) {
+        assertThat(actual.getGatewayAccountId(), is(expected.getGatewayAccountId()));
+        assertThat(actual.getAmount(), is(expected.getAmount()));
+        assertThat(actual.getReference(), is(expected.getReference()));
+        assertThat(actual.getDescription(), is(expected.getDescription()));
+        assertThat(actual.getEmail(), is(expected.getEmail()));
+        assertThat(actual.getCardholderName(), is(expected.getCardholderName()));
+        assertThat(actual.getCardBrand(), is(expected.getCardBrand()));
+        assertThat(actual.getLastDigitsCardNumber(), is(expected.getLastDigitsCardNumber()));
+        assertThat(actual.getFirstDigitsCardNumber(), is(expected.getFirstDigitsCardNumber()));
+        assertThat(actual.getNetAmount(), is(expected.getNetAmount()));
+        assertThat(actual.getTotalAmount(), is(expected.getTotalAmount()));
+        assertThat(actual.getFee(), is(expected.getFee()));
+        assertThat(actual.getRefundStatus(), is(expected.getRefundStatus()));
+        assertThat(actual.getRefundAmountRefunded(), is(expected.getRefundAmountRefunded()));
+        assertThat(actual.getRefundAmountAvailable(), is(expected.getRefundAmountAvailable()));
+        assertThat(actual.isLive(), is(expected.isLive()));
+        assertThat(actual.isMoto(), is(expected.isMoto()));
+        assertThat(actual.getGatewayTransactionId(), is(expected.getGatewayTransactionId()));
+        assertThat(actual.getSource(), is(expected.getSource()));
+        assertThat(actual.getGatewayPayoutId(), is(expected.getGatewayPayoutId()));
+    }
+}
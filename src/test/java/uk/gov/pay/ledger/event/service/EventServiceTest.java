@@ -1,28 +1,40 @@
 package uk.gov.pay.ledger.event.service;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.dropwizard.jackson.Jackson;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.dao.ResourceDigestDao;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.ResourceType;
 import uk.gov.pay.ledger.event.model.SalientEventType;
 import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
+import uk.gov.pay.ledger.referencedata.ReferenceDataCache;
 import uk.gov.pay.ledger.util.fixture.EventFixture;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,9 +42,21 @@ public class EventServiceTest {
     @Mock
     EventDao mockEventDao;
 
+    @Mock
+    ResourceDigestDao mockResourceDigestDao;
+
+    @Mock
+    ReferenceDataCache mockReferenceDataCache;
+
+    @Captor
+    ArgumentCaptor<EventDigest> eventDigestArgumentCaptor;
+
     private static ObjectMapper objectMapper = Jackson.newObjectMapper();
 
+    private static final int RESOURCE_TYPE_ID = 1;
+
     private EventService eventService;
+    private MetricRegistry metricRegistry;
 
     private Event event;
 
@@ -43,8 +67,10 @@ public class EventServiceTest {
 
     @BeforeEach
     public void setUp() {
-        eventService = new EventService(mockEventDao);
+        metricRegistry = new MetricRegistry();
+        eventService = new EventService(mockEventDao, mockResourceDigestDao, mockReferenceDataCache, metricRegistry);
 
+        event = EventFixture.anEventFixture().toEntity();
         latestEventTime = ZonedDateTime.now().minusHours(1L);
         String eventDetails1 = "{ \"amount\": 1000}";
         event1 = EventFixture.anEventFixture()
@@ -59,6 +85,9 @@ public class EventServiceTest {
                 .withEventDate(ZonedDateTime.now().minusHours(2L))
                 .toEntity();
         lenient().when(mockEventDao.getEventsByResourceExternalId(resourceExternalId)).thenReturn(List.of(event1, event2));
+        lenient().when(mockReferenceDataCache.getResourceTypeId(any(ResourceType.class))).thenReturn(RESOURCE_TYPE_ID);
+        lenient().doAnswer(invocation -> invocation.getArgument(0, Supplier.class).get())
+                .when(mockResourceDigestDao).inTransaction(any());
     }
 
     @Test
@@ -101,7 +130,8 @@ public class EventServiceTest {
 
     @Test
     public void createIfDoesNotExistReturnsSuccessfulCreatedResponse() {
-        when(mockEventDao.insertEventIfDoesNotExistWithResourceTypeId(event)).thenReturn(Optional.of(1L));
+        when(mockEventDao.insertIfDoesNotExist(event, RESOURCE_TYPE_ID)).thenReturn(Optional.of(1L));
+        when(mockEventDao.getEventsByResourceExternalId(event.getResourceExternalId())).thenReturn(List.of(event));
 
         CreateEventResponse response = eventService.createIfDoesNotExist(event);
 
@@ -111,7 +141,7 @@ public class EventServiceTest {
 
     @Test
     public void createIfDoesNotExistReturnsSuccessfulIgnoredResponse() {
-        when(mockEventDao.insertEventIfDoesNotExistWithResourceTypeId(event)).thenReturn(Optional.empty());
+        when(mockEventDao.insertIfDoesNotExist(event, RESOURCE_TYPE_ID)).thenReturn(Optional.empty());
 
         CreateEventResponse response = eventService.createIfDoesNotExist(event);
 
@@ -119,9 +149,37 @@ public class EventServiceTest {
         assertThat(response.getState(), is(CreateEventResponse.CreateEventState.IGNORED));
     }
 
+    @Test
+    public void createAllIfDoesNotExistReturnsResponseForEachEventInBatch() {
+        when(mockEventDao.insertAllIfDoesNotExist(List.of(event1, event2), List.of(RESOURCE_TYPE_ID, RESOURCE_TYPE_ID))).thenReturn(new int[]{1, 0});
+
+        List<CreateEventResponse> responses = eventService.createAllIfDoesNotExist(List.of(event1, event2));
+
+        assertThat(responses.size(), is(2));
+        assertThat(responses.get(0).getState(), is(CreateEventResponse.CreateEventState.INSERTED));
+        assertThat(responses.get(1).getState(), is(CreateEventResponse.CreateEventState.IGNORED));
+    }
+
+    @Test
+    public void createAllIfDoesNotExistFallsBackToIndividualInsertsWhenBatchFails() {
+        when(mockEventDao.insertAllIfDoesNotExist(List.of(event1, event2), List.of(RESOURCE_TYPE_ID, RESOURCE_TYPE_ID)))
+                .thenThrow(new RuntimeException("forced batch failure"));
+        when(mockEventDao.insertIfDoesNotExist(event1, RESOURCE_TYPE_ID)).thenReturn(Optional.of(1L));
+        when(mockEventDao.insertIfDoesNotExist(event2, RESOURCE_TYPE_ID))
+                .thenThrow(new RuntimeException("forced failure"));
+
+        List<CreateEventResponse> responses = eventService.createAllIfDoesNotExist(List.of(event1, event2));
+
+        assertThat(responses.size(), is(2));
+        assertTrue(responses.get(0).isSuccessful());
+        assertThat(responses.get(0).getState(), is(CreateEventResponse.CreateEventState.INSERTED));
+        assertFalse(responses.get(1).isSuccessful());
+        assertThat(responses.get(1).getErrorMessage(), is("forced failure"));
+    }
+
     @Test
     public void createIfDoesNotExistReturnsNotSuccessfulResponse() {
-        when(mockEventDao.insertEventIfDoesNotExistWithResourceTypeId(event))
+        when(mockEventDao.insertIfDoesNotExist(event, RESOURCE_TYPE_ID))
                 .thenThrow(new RuntimeException("forced failure"));
 
         CreateEventResponse response = eventService.createIfDoesNotExist(event);
@@ -130,4 +188,94 @@ public class EventServiceTest {
         assertThat(response.getState(), is(CreateEventResponse.CreateEventState.ERROR));
         assertThat(response.getErrorMessage(), is("forced failure"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getEventDigestsForResourcesBuildsEachDigestFromOneQuery() {
+        Event otherResourceEvent = EventFixture.anEventFixture()
+                .withResourceExternalId("other_resource_external_id")
+                .toEntity();
+        when(mockEventDao.findEventsForExternalIds(Set.of(resourceExternalId, "other_resource_external_id")))
+                .thenReturn(List.of(event2, otherResourceEvent, event1));
+
+        Map<String, EventDigest> eventDigests = eventService.getEventDigestsForResources(
+                List.of(resourceExternalId, "other_resource_external_id"));
+
+        assertThat(eventDigests.size(), is(2));
+        assertThat(eventDigests.get(resourceExternalId).getEventCount(), is(2));
+        assertThat(eventDigests.get(resourceExternalId).getMostRecentEventTimestamp(), is(latestEventTime));
+        assertThat(eventDigests.get(resourceExternalId).getEventPayload().get("amount"), is(1000));
+        assertThat(eventDigests.get("other_resource_external_id").getEventCount(), is(1));
+        verify(mockEventDao, never()).getEventsByResourceExternalId(any());
+    }
+
+    @Test
+    public void createAllIfDoesNotExistFoldsInsertedEventsIntoResourceDigestSnapshot() {
+        EventDigest snapshot = EventDigest.fromEventList(List.of(event1, event2));
+        Event event3 = EventFixture.anEventFixture()
+                .withEventData("{ \"amount\": 3000}")
+                .withEventType("AUTHORISATION_SUCCEEDED")
+                .withResourceExternalId(resourceExternalId)
+                .withEventDate(latestEventTime.plusMinutes(1L))
+                .toEntity();
+        when(mockEventDao.insertAllIfDoesNotExist(List.of(event3), List.of(RESOURCE_TYPE_ID))).thenReturn(new int[]{1});
+        when(mockResourceDigestDao.findForUpdate(resourceExternalId)).thenReturn(Optional.of(snapshot));
+
+        eventService.createAllIfDoesNotExist(List.of(event3));
+
+        verify(mockResourceDigestDao).update(eventDigestArgumentCaptor.capture());
+        verify(mockEventDao, never()).getEventsByResourceExternalId(any());
+        assertThat(eventDigestArgumentCaptor.getValue().getEventCount(), is(3));
+        assertThat(eventDigestArgumentCaptor.getValue().getMostRecentSalientEventType().get(), is(SalientEventType.AUTHORISATION_SUCCEEDED));
+        assertThat(eventDigestArgumentCaptor.getValue().getEventPayload().get("amount"), is(3000));
+    }
+
+    @Test
+    public void createAllIfDoesNotExistRebuildsResourceDigestSnapshotForOutOfOrderEvent() {
+        EventDigest snapshot = EventDigest.fromEventList(List.of(event1));
+        when(mockEventDao.insertAllIfDoesNotExist(List.of(event2), List.of(RESOURCE_TYPE_ID))).thenReturn(new int[]{1});
+        when(mockResourceDigestDao.findForUpdate(resourceExternalId)).thenReturn(Optional.of(snapshot));
+
+        eventService.createAllIfDoesNotExist(List.of(event2));
+
+        verify(mockResourceDigestDao).update(eventDigestArgumentCaptor.capture());
+        assertThat(eventDigestArgumentCaptor.getValue().getEventCount(), is(2));
+        assertThat(eventDigestArgumentCaptor.getValue().getEventPayload().get("description"), is("a payment"));
+    }
+
+    @Test
+    public void createAllIfDoesNotExistDoesNotUpdateResourceDigestSnapshotForIgnoredEvents() {
+        when(mockEventDao.insertAllIfDoesNotExist(List.of(event1), List.of(RESOURCE_TYPE_ID))).thenReturn(new int[]{0});
+
+        eventService.createAllIfDoesNotExist(List.of(event1));
+
+        verify(mockResourceDigestDao, never()).findForUpdate(any());
+        verify(mockResourceDigestDao, never()).update(any());
+    }
+
+    @Test
+    public void getEventDigestForResource_shouldReadResourceDigestSnapshot() {
+        EventDigest snapshot = EventDigest.fromEventList(List.of(event1, event2));
+        when(mockResourceDigestDao.findByResourceExternalId(resourceExternalId)).thenReturn(Optional.of(snapshot));
+
+        EventDigest eventDigest = eventService.getEventDigestForResource(event1);
+
+        assertThat(eventDigest, is(snapshot));
+        verify(mockEventDao, never()).getEventsByResourceExternalId(any());
+    }
+
+    @Test
+    public void getEventDigestForResource_shouldCountSnapshotHitsAndMisses() {
+        EventDigest snapshot = EventDigest.fromEventList(List.of(event1, event2));
+        when(mockResourceDigestDao.findByResourceExternalId(resourceExternalId)).thenReturn(Optional.of(snapshot));
+        when(mockResourceDigestDao.findByResourceExternalId("other_resource_external_id")).thenReturn(Optional.empty());
+        when(mockEventDao.getEventsByResourceExternalId("other_resource_external_id"))
+                .thenReturn(List.of(EventFixture.anEventFixture().withResourceExternalId("other_resource_external_id").toEntity()));
+
+        eventService.getEventDigestForResource(resourceExternalId);
+        eventService.getEventDigestForResource(resourceExternalId);
+        eventService.getEventDigestForResource("other_resource_external_id");
+
+        assertThat(metricRegistry.counter("event-digest.snapshot.hits").getCount(), is(2L));
+        assertThat(metricRegistry.counter("event-digest.snapshot.misses").getCount(), is(1L));
+    }
+}
@@ -54,4 +54,12 @@ public class TransactionMetadataKeyDaoIT {
         assertThat(metadataKeyRecord.size(), is(1));
         assertThat(metadataKeyRecord.get(0).get("key"), is(key));
     }
+
+    @Test
+    public void shouldFindIdsOfInsertedMetadataKeys() {
+        Long keyId = metadataKeyDao.insertIfNotExist("key-3").get();
+
+        assertThat(metadataKeyDao.findIdByKey("key-3").get(), is(keyId));
+        assertThat(metadataKeyDao.getMetadataKeyIdsByKey().get("key-3"), is(keyId));
+    }
 }
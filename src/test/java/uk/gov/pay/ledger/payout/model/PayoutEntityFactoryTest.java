@@ -11,6 +11,7 @@ import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.payout.entity.PayoutEntity;
 import uk.gov.pay.ledger.payout.state.PayoutState;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
@@ -76,4 +77,36 @@ public class PayoutEntityFactoryTest {
 
         assertThat(payoutEntity.getState(), is(PayoutState.PAID_OUT));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldMapPayloadTheSameWayAsJackson() throws IOException {
+        Event payoutCreatedEvent = aQueuePaymentEventFixture()
+                .withEventType("PAYOUT_CREATED")
+                .withEventData(gsonBuilder.create()
+                        .toJson(Map.of(
+                                "amount", 10000,
+                                "gateway_account_id", "123",
+                                "statement_descriptor", "SPECIAL TEST SERVICE"
+                        ))
+                )
+                .toEntity();
+        Event payoutPaidOutEvent = aQueuePaymentEventFixture()
+                .withEventType("PAYOUT_PAID")
+                .withEventData(gsonBuilder.create()
+                        .toJson(Map.of(
+                                "paid_out_date", "2020-05-04T00:20:00.123456Z",
+                                "gateway_payout_id", "po_123"
+                        ))
+                )
+                .toEntity();
+        EventDigest eventDigest = EventDigest.fromEventList(List.of(payoutPaidOutEvent, payoutCreatedEvent));
+
+        PayoutEntity payoutEntity = payoutEntityFactory.create(eventDigest);
+        PayoutEntity jacksonEntity = objectMapper.convertValue(eventDigest.getEventPayload(), PayoutEntity.class);
+
+        assertThat(payoutEntity.getAmount(), is(jacksonEntity.getAmount()));
+        assertThat(payoutEntity.getGatewayAccountId(), is(jacksonEntity.getGatewayAccountId()));
+        assertThat(payoutEntity.getPaidOutDate(), is(jacksonEntity.getPaidOutDate()));
+        assertThat(payoutEntity.getPayoutDetails(), is(objectMapper.writeValueAsString(eventDigest.getEventPayload())));
+    }
+}
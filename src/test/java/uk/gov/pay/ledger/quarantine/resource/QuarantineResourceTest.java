@@ -0,0 +1,146 @@
+package uk.gov.pay.ledger.quarantine.resource;
+
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import uk.gov.pay.ledger.exception.BadRequestExceptionMapper;
+import uk.gov.pay.ledger.exception.JerseyViolationExceptionMapper;
+import uk.gov.pay.ledger.quarantine.model.QuarantinedMessage;
+import uk.gov.pay.ledger.quarantine.service.QuarantineService;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class QuarantineResourceTest {
+
+    private static final QuarantineService mockQuarantineService = mock(QuarantineService.class);
+
+    public static ResourceExtension resources = ResourceExtension.builder()
+            .addResource(new QuarantineResource(mockQuarantineService))
+            .addProvider(BadRequestExceptionMapper.class)
+            .addProvider(JerseyViolationExceptionMapper.class)
+            .build();
+
+    @AfterEach
+    public void tearDown() {
+        reset(mockQuarantineService);
+    }
+
+    @Test
+    public void getParkedMessages_shouldReturnParkedMessagesWithoutMessageBody() {
+        when(mockQuarantineService.findParkedMessages(100)).thenReturn(List.of(aParkedMessage(3)));
+
+        Response response = resources
+                .target("/v1/quarantine")
+                .request()
+                .get();
+
+        assertThat(response.getStatus(), is(200));
+
+        List<Map<String, Object>> parkedMessages = response.readEntity(List.class);
+        assertThat(parkedMessages.size(), is(1));
+        assertThat(parkedMessages.get(0).get("id"), is(10));
+        assertThat(parkedMessages.get(0).get("sqs_message_id"), is("queue-message-id"));
+        assertThat(parkedMessages.get(0).get("resource_external_id"), is("3uwuyr38rry"));
+        assertThat(parkedMessages.get(0).get("attempts"), is(3));
+        assertThat(parkedMessages.get(0).get("parked"), is(true));
+        assertThat(parkedMessages.get(0).get("message_body"), is(nullValue()));
+    }
+
+    @Test
+    public void getParkedMessages_shouldPassLimitToService() {
+        when(mockQuarantineService.findParkedMessages(5)).thenReturn(List.of());
+
+        Response response = resources
+                .target("/v1/quarantine")
+                .queryParam("limit", 5)
+                .request()
+                .get();
+
+        assertThat(response.getStatus(), is(200));
+        verify(mockQuarantineService).findParkedMessages(5);
+    }
+
+    @Test
+    public void getParkedMessages_shouldReturn422IfLimitIsTooLarge() {
+        Response response = resources
+                .target("/v1/quarantine")
+                .queryParam("limit", 1001)
+                .request()
+                .get();
+
+        assertThat(response.getStatus(), is(422));
+        verify(mockQuarantineService, never()).findParkedMessages(anyInt());
+    }
+
+    @Test
+    public void replayParkedMessage_shouldReturn204IfReplaySucceeds() {
+        QuarantinedMessage parkedMessage = aParkedMessage(3);
+        when(mockQuarantineService.findParkedMessage(10L)).thenReturn(Optional.of(parkedMessage));
+        when(mockQuarantineService.replay(parkedMessage)).thenReturn(true);
+
+        Response response = resources
+                .target("/v1/quarantine/10/replay")
+                .request()
+                .post(Entity.json(""));
+
+        assertThat(response.getStatus(), is(204));
+        verify(mockQuarantineService).replay(parkedMessage);
+    }
+
+    @Test
+    public void replayParkedMessage_shouldReturn409WithUpdatedMessageIfReplayFails() {
+        QuarantinedMessage parkedMessage = aParkedMessage(3);
+        when(mockQuarantineService.findParkedMessage(10L))
+                .thenReturn(Optional.of(parkedMessage))
+                .thenReturn(Optional.of(aParkedMessage(4)));
+        when(mockQuarantineService.replay(parkedMessage)).thenReturn(false);
+
+        Response response = resources
+                .target("/v1/quarantine/10/replay")
+                .request()
+                .post(Entity.json(""));
+
+        assertThat(response.getStatus(), is(409));
+
+        Map<String, Object> quarantinedMessage = response.readEntity(Map.class);
+        assertThat(quarantinedMessage.get("attempts"), is(4));
+        assertThat(quarantinedMessage.get("error_message"), is("projection failed"));
+    }
+
+    @Test
+    public void replayParkedMessage_shouldReturn404IfNoParkedMessageHasId() {
+        when(mockQuarantineService.findParkedMessage(11L)).thenReturn(Optional.empty());
+
+        Response response = resources
+                .target("/v1/quarantine/11/replay")
+                .request()
+                .post(Entity.json(""));
+
+        assertThat(response.getStatus(), is(404));
+        verify(mockQuarantineService, never()).replay(any());
+    }
+
+    private QuarantinedMessage aParkedMessage(int attempts) {
+        return new QuarantinedMessage(10L, "queue-message-id", "3uwuyr38rry", "PAYMENT_CREATED", "{}",
+                "projection failed", attempts, true, ZonedDateTime.now(), ZonedDateTime.now());
+    }
+}
@@ -0,0 +1,168 @@
+package uk.gov.pay.ledger.quarantine.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
+import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.quarantine.dao.QuarantineDao;
+import uk.gov.pay.ledger.quarantine.model.QuarantinedMessage;
+import uk.gov.pay.ledger.queue.EventDigestHandler;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.IngestUnitOfWork;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+
+@ExtendWith(MockitoExtension.class)
+public class QuarantineServiceTest {
+
+    private static final String MESSAGE_BODY = "{" +
+            "\"timestamp\": \"2018-03-12T16:25:01.123456Z\"," +
+            "\"resource_external_id\": \"3uwuyr38rry\"," +
+            "\"event_type\":\"PAYMENT_CREATED\"," +
+            "\"resource_type\": \"payment\"," +
+            "\"event_details\": {}" +
+            "}";
+
+    @Mock
+    private QuarantineDao quarantineDao;
+    @Mock
+    private EventService eventService;
+    @Mock
+    private EventDigestHandler eventDigestHandler;
+    @Mock
+    private IngestUnitOfWork ingestUnitOfWork;
+    @Mock
+    private LedgerConfig ledgerConfig;
+    @Mock
+    private QueueMessageReceiverConfig queueMessageReceiverConfig;
+    @Mock
+    private EventMessage eventMessage;
+
+    private MetricRegistry metricRegistry;
+    private Event event = aQueuePaymentEventFixture().toEntity();
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        when(ledgerConfig.getQueueMessageReceiverConfig()).thenReturn(queueMessageReceiverConfig);
+    }
+
+    @Test
+    public void shouldRecordFailureWithoutParkingMessageBelowMaximumAttempts() {
+        QuarantineService quarantineService = quarantineServiceWithMaximumAttempts(3);
+        givenFailingEventMessage();
+        when(quarantineDao.recordFailure("queue-message-id", event.getResourceExternalId(), event.getEventType(),
+                MESSAGE_BODY, "projection failed", 3)).thenReturn(aQuarantinedMessage(1, false));
+
+        assertThat(quarantineService.recordFailure(eventMessage, "projection failed"), is(false));
+        assertThat(metricRegistry.counter("ingest.quarantine.failures").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRemoveRecordsOfFailuresOnSuccessWhicheverInstanceRecordedThem() {
+        QuarantineService quarantineService = quarantineServiceWithMaximumAttempts(3);
+        EventMessage otherEventMessage = mock(EventMessage.class);
+        when(eventMessage.getQueueMessageId()).thenReturn("queue-message-id");
+        when(otherEventMessage.getQueueMessageId()).thenReturn("other-queue-message-id");
+
+        quarantineService.recordSuccesses(List.of(eventMessage, otherEventMessage));
+
+        verify(quarantineDao).deleteBySqsMessageIds(List.of("queue-message-id", "other-queue-message-id"));
+    }
+
+    @Test
+    public void shouldNotRemoveRecordsOfFailuresWhenQuarantineIsDisabled() {
+        QuarantineService quarantineService = quarantineServiceWithMaximumAttempts(0);
+
+        quarantineService.recordSuccesses(List.of(eventMessage));
+
+        verifyNoInteractions(quarantineDao);
+    }
+
+    @Test
+    public void shouldParkMessageOnceItHasFailedMaximumAttempts() {
+        QuarantineService quarantineService = quarantineServiceWithMaximumAttempts(3);
+        givenFailingEventMessage();
+        when(quarantineDao.recordFailure(anyString(), any(), any(), anyString(), anyString(), eq(3)))
+                .thenReturn(aQuarantinedMessage(3, true));
+
+        assertThat(quarantineService.recordFailure(eventMessage, "projection failed"), is(true));
+        assertThat(metricRegistry.counter("ingest.quarantine.parked").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotRecordFailuresWhenQuarantineIsDisabled() {
+        QuarantineService quarantineService = quarantineServiceWithMaximumAttempts(0);
+
+        assertThat(quarantineService.recordFailure(eventMessage, "projection failed"), is(false));
+        verifyNoInteractions(quarantineDao);
+    }
+
+    @Test
+    public void shouldReleaseMessageFromQuarantineWhenReplaySucceeds() {
+        QuarantineService quarantineService = quarantineServiceWithMaximumAttempts(3);
+        when(eventService.createIfDoesNotExist(any(Event.class))).thenReturn(new CreateEventResponse(Optional.of(1L)));
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(ingestUnitOfWork).run(any());
+
+        assertThat(quarantineService.replay(aQuarantinedMessage(3, true)), is(true));
+
+        verify(eventDigestHandler).processEvents(any());
+        verify(quarantineDao).delete(10L);
+        assertThat(metricRegistry.counter("ingest.quarantine.replayed").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldKeepMessageParkedWhenReplayFails() {
+        QuarantineService quarantineService = quarantineServiceWithMaximumAttempts(3);
+        when(eventService.createIfDoesNotExist(any(Event.class)))
+                .thenReturn(new CreateEventResponse(new RuntimeException("forced failure")));
+
+        assertThat(quarantineService.replay(aQuarantinedMessage(3, true)), is(false));
+
+        verify(quarantineDao).recordFailedReplay(10L, "forced failure");
+        verify(quarantineDao, never()).delete(10L);
+    }
+
+    private QuarantineService quarantineServiceWithMaximumAttempts(int maximumAttempts) {
+        when(queueMessageReceiverConfig.getMessageMaximumAttempts()).thenReturn(maximumAttempts);
+        return new QuarantineService(quarantineDao, eventService, eventDigestHandler, ingestUnitOfWork,
+                new ObjectMapper(), ledgerConfig, metricRegistry);
+    }
+
+    private void givenFailingEventMessage() {
+        when(eventMessage.getEvent()).thenReturn(event);
+        when(eventMessage.getQueueMessageId()).thenReturn("queue-message-id");
+        when(eventMessage.getQueueMessageBody()).thenReturn(MESSAGE_BODY);
+    }
+
+    private QuarantinedMessage aQuarantinedMessage(int attempts, boolean parked) {
+        return new QuarantinedMessage(10L, "queue-message-id", "3uwuyr38rry", "PAYMENT_CREATED", MESSAGE_BODY,
+                "projection failed", attempts, parked, ZonedDateTime.now(), ZonedDateTime.now());
+    }
+}
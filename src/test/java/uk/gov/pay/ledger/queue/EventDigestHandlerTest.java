@@ -4,6 +4,7 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.core.Appender;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -65,7 +66,7 @@ public class EventDigestHandlerTest {
     public void setUp() {
         transactionEntityFactory = new TransactionEntityFactory(new ObjectMapper());
         eventDigestHandler =  new EventDigestHandler(eventService, transactionService,
-                transactionMetadataService, payoutService, transactionEntityFactory);
+                transactionMetadataService, payoutService, transactionEntityFactory, new IngestMetrics(new MetricRegistry()));
         eventDigest = EventDigest.fromEventList(List.of(anEventFixture().toEntity()));
         lenient().when(eventService.getEventDigestForResource(any(Event.class)))
                 .thenReturn(eventDigest);
@@ -74,7 +75,6 @@ public class EventDigestHandlerTest {
     @Test
     public void shouldUpsertTransactionIfResourceTypeIsPayment() {
         Event event = anEventFixture().withResourceType(PAYMENT).toEntity();
-        when(eventService.getEventsForResource(event.getResourceExternalId())).thenReturn(List.of(anEventFixture().toEntity()));
 
         eventDigestHandler.processEvent(event);
 
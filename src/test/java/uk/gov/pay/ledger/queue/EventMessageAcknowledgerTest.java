@@ -0,0 +1,86 @@
+package uk.gov.pay.ledger.queue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EventMessageAcknowledgerTest {
+
+    @Mock
+    private EventQueue eventQueue;
+
+    @Mock
+    private LedgerConfig ledgerConfig;
+
+    @Mock
+    private QueueMessageReceiverConfig queueMessageReceiverConfig;
+
+    private EventMessageAcknowledger eventMessageAcknowledger;
+
+    @BeforeEach
+    public void setUp() {
+        when(ledgerConfig.getQueueMessageReceiverConfig()).thenReturn(queueMessageReceiverConfig);
+        when(queueMessageReceiverConfig.getMessageAcknowledgementMaxDelayInMilliseconds()).thenReturn(1000);
+        Clock clock = Clock.fixed(Instant.parse("2020-01-01T10:00:00Z"), ZoneOffset.UTC);
+        eventMessageAcknowledger = new EventMessageAcknowledger(eventQueue, ledgerConfig, clock);
+    }
+
+    @Test
+    public void shouldNotSendAcknowledgementsUntilBatchIsFullOrFlushed() {
+        eventMessageAcknowledger.markMessageAsProcessed(mock(EventMessage.class));
+        eventMessageAcknowledger.flushIfDue();
+
+        verifyNoInteractions(eventQueue);
+    }
+
+    @Test
+    public void shouldDeleteMessagesInOneBatchOnceTenAreProcessed() {
+        List<EventMessage> messages = messages(10);
+        when(eventQueue.markMessagesAsProcessed(messages)).thenReturn(List.of());
+
+        messages.forEach(eventMessageAcknowledger::markMessageAsProcessed);
+
+        verify(eventQueue).markMessagesAsProcessed(messages);
+        verify(eventQueue, never()).scheduleMessagesForRetry(any());
+    }
+
+    @Test
+    public void shouldSendPendingDeletesAndRetriesOnFlush() {
+        EventMessage processedMessage = mock(EventMessage.class);
+        EventMessage failedMessage = mock(EventMessage.class);
+        when(eventQueue.markMessagesAsProcessed(List.of(processedMessage))).thenReturn(List.of());
+        when(eventQueue.scheduleMessagesForRetry(List.of(failedMessage))).thenReturn(List.of(failedMessage));
+
+        eventMessageAcknowledger.markMessageAsProcessed(processedMessage);
+        eventMessageAcknowledger.scheduleMessageForRetry(failedMessage);
+        eventMessageAcknowledger.flush();
+
+        verify(eventQueue).markMessagesAsProcessed(List.of(processedMessage));
+        verify(eventQueue).scheduleMessagesForRetry(List.of(failedMessage));
+    }
+
+    private List<EventMessage> messages(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> mock(EventMessage.class))
+                .collect(Collectors.toList());
+    }
+}
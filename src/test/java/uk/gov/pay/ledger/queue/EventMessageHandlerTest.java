@@ -1,18 +1,27 @@
 package uk.gov.pay.ledger.queue;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.quarantine.service.QuarantineService;
 
 import java.util.List;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
@@ -21,7 +30,7 @@ import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaym
 public class EventMessageHandlerTest {
 
     @Mock
-    private EventQueue eventQueue;
+    private EventMessageAcknowledger eventMessageAcknowledger;
 
     @Mock
     private EventService eventService;
@@ -29,6 +38,23 @@ public class EventMessageHandlerTest {
     @Mock
     private EventDigestHandler eventDigestHandler;
 
+    @Mock
+    private ProcessedEventKeys processedEventKeys;
+
+    @Mock
+    private IngestUnitOfWork ingestUnitOfWork;
+
+    @Mock
+    private QuarantineService quarantineService;
+
+    @Spy
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private final MetricRegistry ingestMetricRegistry = new MetricRegistry();
+
+    @Spy
+    private IngestMetrics ingestMetrics = new IngestMetrics(ingestMetricRegistry);
+
     @Mock
     private CreateEventResponse createEventResponse;
 
@@ -41,27 +67,117 @@ public class EventMessageHandlerTest {
     private EventMessageHandler eventMessageHandler;
 
     @BeforeEach
-    public void setUp() throws QueueException {
-        when(eventQueue.retrieveEvents()).thenReturn(List.of(eventMessage));
-        when(eventService.createIfDoesNotExist(any())).thenReturn(createEventResponse);
+    public void setUp() {
+        when(eventService.createAllIfDoesNotExist(any())).thenReturn(List.of(createEventResponse));
         when(eventMessage.getEvent()).thenReturn(event);
+        lenient().doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(ingestUnitOfWork).run(any());
     }
 
     @Test
-    public void shouldMarkMessageAsProcessed_WhenEventIsProcessedSuccessfully() throws QueueException {
+    public void shouldMarkMessageAsProcessed_WhenEventIsProcessedSuccessfully() {
         when(createEventResponse.isSuccessful()).thenReturn(true);
 
-        eventMessageHandler.handle();
+        eventMessageHandler.handle(List.of(eventMessage));
 
-        verify(eventQueue).markMessageAsProcessed(any(EventMessage.class));
+        verify(eventMessageAcknowledger).markMessageAsProcessed(any(EventMessage.class));
+        verify(eventMessageAcknowledger).flush();
+        assertThat(ingestMetricRegistry.counter("ingest.events.resource-type." + event.getResourceType()).getCount(), is(1L));
+        assertThat(ingestMetricRegistry.timer("ingest.stage.projection").getCount(), is(1L));
     }
 
     @Test
-    public void shouldScheduleMessageForRetry_WhenEventIsNotProcessedSuccessfully() throws QueueException {
+    public void shouldScheduleMessageForRetry_WhenEventIsNotProcessedSuccessfully() {
         when(createEventResponse.isSuccessful()).thenReturn(false);
 
-        eventMessageHandler.handle();
+        eventMessageHandler.handle(List.of(eventMessage));
+
+        verify(eventMessageAcknowledger).scheduleMessageForRetry(any());
+        verify(eventMessageAcknowledger).flush();
+        assertThat(ingestMetricRegistry.meter("ingest.retries").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldInsertAllEventsInBatchAndHandleEachMessageByItsOwnOutcome() {
+        EventMessage failedEventMessage = mock(EventMessage.class);
+        Event failedEvent = aQueuePaymentEventFixture().toEntity();
+        CreateEventResponse failedResponse = new CreateEventResponse(new RuntimeException("forced failure"));
+        when(failedEventMessage.getEvent()).thenReturn(failedEvent);
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        when(eventService.createAllIfDoesNotExist(List.of(event, failedEvent)))
+                .thenReturn(List.of(createEventResponse, failedResponse));
+
+        eventMessageHandler.handle(List.of(eventMessage, failedEventMessage));
+
+        verify(eventService).createAllIfDoesNotExist(List.of(event, failedEvent));
+        verify(eventDigestHandler).resolveReferenceData(List.of(event));
+        verify(eventDigestHandler).processEvents(List.of(event));
+        verify(eventDigestHandler, never()).processEvents(List.of(failedEvent));
+        verify(eventMessageAcknowledger).markMessageAsProcessed(eventMessage);
+        verify(eventMessageAcknowledger).scheduleMessageForRetry(failedEventMessage);
+        verify(quarantineService).recordSuccesses(List.of(eventMessage));
+    }
+
+    @Test
+    public void shouldAcknowledgeRedeliveryOfProcessedEventWithoutStoringOrProjectingIt() {
+        EventMessage redeliveredEventMessage = mock(EventMessage.class);
+        Event redeliveredEvent = aQueuePaymentEventFixture().toEntity();
+        when(redeliveredEventMessage.getEvent()).thenReturn(redeliveredEvent);
+        when(processedEventKeys.contains(redeliveredEvent)).thenReturn(true);
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+
+        eventMessageHandler.handle(List.of(redeliveredEventMessage, eventMessage));
+
+        verify(eventService).createAllIfDoesNotExist(List.of(event));
+        verify(eventDigestHandler, never()).processEvents(List.of(redeliveredEvent));
+        verify(eventMessageAcknowledger).markMessageAsProcessed(redeliveredEventMessage);
+        verify(processedEventKeys).add(event);
+    }
+
+    @Test
+    public void shouldProjectResourceOnceForAllOfItsEventsInBatch() {
+        EventMessage laterEventMessage = mock(EventMessage.class);
+        Event laterEvent = aQueuePaymentEventFixture()
+                .withResourceExternalId(event.getResourceExternalId())
+                .withEventDate(event.getEventDate().plusSeconds(1))
+                .withEventType("AUTHORISATION_SUCCEEDED")
+                .toEntity();
+        when(laterEventMessage.getEvent()).thenReturn(laterEvent);
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        when(eventService.createAllIfDoesNotExist(List.of(event, laterEvent)))
+                .thenReturn(List.of(createEventResponse, createEventResponse));
+
+        eventMessageHandler.handle(List.of(eventMessage, laterEventMessage));
+
+        verify(eventDigestHandler).processEvents(List.of(event, laterEvent));
+        verify(eventMessageAcknowledger).markMessageAsProcessed(eventMessage);
+        verify(eventMessageAcknowledger).markMessageAsProcessed(laterEventMessage);
+    }
+
+    @Test
+    public void shouldNotAcknowledgeMessagesWhenProjectionOfTheirResourceFails() {
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        doThrow(new RuntimeException("projection failed")).when(eventDigestHandler).processEvents(List.of(event));
+
+        eventMessageHandler.handle(List.of(eventMessage));
+
+        verify(eventMessageAcknowledger, never()).markMessageAsProcessed(eventMessage);
+        verify(processedEventKeys, never()).add(event);
+        verify(eventMessageAcknowledger).releaseMessage(eventMessage);
+    }
+
+    @Test
+    public void shouldAcknowledgeMessageOnceItHasBeenQuarantined() {
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        doThrow(new RuntimeException("projection failed")).when(eventDigestHandler).processEvents(List.of(event));
+        when(quarantineService.recordFailure(eventMessage, "projection failed")).thenReturn(true);
+
+        eventMessageHandler.handle(List.of(eventMessage));
 
-        verify(eventQueue).scheduleMessageForRetry(any());
+        verify(eventMessageAcknowledger).markMessageAsProcessed(eventMessage);
+        verify(eventMessageAcknowledger, never()).releaseMessage(eventMessage);
+        verify(processedEventKeys, never()).add(event);
     }
-}
\ No newline at end of file
+}
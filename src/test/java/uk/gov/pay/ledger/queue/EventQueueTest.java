@@ -1,6 +1,7 @@
 package uk.gov.pay.ledger.queue;
 
 import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,10 +9,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
 import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
 import uk.gov.pay.ledger.app.config.SqsConfig;
 import uk.gov.pay.ledger.event.model.ResourceType;
-import uk.gov.pay.ledger.queue.sqs.SqsQueueService;
+import uk.gov.pay.ledger.queue.sqs.SqsMessageVisibilityHeartbeat;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -19,8 +21,12 @@ import java.util.List;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,8 +36,12 @@ public class EventQueueTest {
     private LedgerConfig ledgerConfig;
 
     @Mock
-    private SqsQueueService sqsQueueService;
+    private QueueService queueService;
 
+    @Mock
+    private SqsMessageVisibilityHeartbeat visibilityHeartbeat;
+
+    private SqsConfig sqsConfig;
     private EventQueue eventQueue;
 
     @BeforeEach
@@ -52,14 +62,14 @@ public class EventQueueTest {
                 QueueMessage.of(messageResult, validJsonMessage)
         );
         QueueMessageReceiverConfig queueMessageReceiverConfig = mock(QueueMessageReceiverConfig.class);
-        SqsConfig sqsConfig = mock(SqsConfig.class);
+        sqsConfig = mock(SqsConfig.class);
         when(sqsConfig.getEventQueueUrl()).thenReturn("");
         when(queueMessageReceiverConfig.getMessageRetryDelayInSeconds()).thenReturn(900);
         when(ledgerConfig.getSqsConfig()).thenReturn(sqsConfig);
         when(ledgerConfig.getQueueMessageReceiverConfig()).thenReturn(queueMessageReceiverConfig);
-        when(sqsQueueService.receiveMessages(anyString(), anyString())).thenReturn(messages);
+        when(queueService.receiveMessages(anyString(), anyString())).thenReturn(messages);
 
-        eventQueue = new EventQueue(sqsQueueService, ledgerConfig, new ObjectMapper());
+        eventQueue = new EventQueue(queueService, visibilityHeartbeat, new IngestMetrics(new MetricRegistry()), ledgerConfig, new ObjectMapper());
     }
 
     @Test
@@ -74,4 +84,31 @@ public class EventQueueTest {
         assertEquals(ResourceType.PAYMENT, eventsList.get(0).getEvent().getResourceType());
         assertEquals("{\"example_event_details_field\":\"and its value\"}", eventsList.get(0).getEvent().getEventData());
     }
+
+    @Test
+    public void shouldAcknowledgeMessagesOnTheQueueTheyWereReceivedFrom() throws QueueException {
+        EventQueueConfig backfillQueue = new EventQueueConfig("backfill", "backfill-queue-url", 1, false);
+        when(sqsConfig.getAdditionalEventQueues()).thenReturn(List.of(backfillQueue));
+        eventQueue = new EventQueue(queueService, visibilityHeartbeat, new IngestMetrics(new MetricRegistry()), ledgerConfig, new ObjectMapper());
+
+        List<EventMessage> eventsList = eventQueue.retrieveEvents(backfillQueue);
+        eventQueue.markMessageAsProcessed(eventsList.get(0));
+
+        assertEquals(2, eventQueue.getEventQueues().size());
+        assertEquals(backfillQueue, eventsList.get(0).getEventQueue());
+        verify(queueService).receiveMessages(eq("backfill-queue-url"), anyString());
+        verify(queueService).deleteMessage(eq("backfill-queue-url"), any());
+    }
+
+    @Test
+    public void shouldHandBackMessagesByMakingThemVisibleImmediately() throws QueueException {
+        List<EventMessage> eventsList = eventQueue.retrieveEvents();
+        when(queueService.deferMessages(eq(""), any(), eq(0))).thenReturn(List.of());
+
+        List<EventMessage> failedMessages = eventQueue.handBackMessages(eventsList);
+
+        assertTrue(failedMessages.isEmpty());
+        verify(visibilityHeartbeat).untrack(any());
+        verify(queueService).deferMessages(eq(""), any(), eq(0));
+    }
 }
\ No newline at end of file
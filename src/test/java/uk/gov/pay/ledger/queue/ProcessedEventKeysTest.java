@@ -0,0 +1,44 @@
+package uk.gov.pay.ledger.queue;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.event.model.Event;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+
+public class ProcessedEventKeysTest {
+
+    private final ProcessedEventKeys processedEventKeys = new ProcessedEventKeys(100);
+
+    @Test
+    public void shouldContainEventWithSameKeyAsProcessedEvent() {
+        Event event = aQueuePaymentEventFixture()
+                .withEventDate(ZonedDateTime.parse("2020-01-01T10:00:00Z"))
+                .toEntity();
+        Event redeliveredEvent = aQueuePaymentEventFixture()
+                .withResourceExternalId(event.getResourceExternalId())
+                .withEventDate(event.getEventDate().withZoneSameInstant(ZoneOffset.ofHours(1)))
+                .toEntity();
+
+        processedEventKeys.add(event);
+
+        assertThat(processedEventKeys.contains(redeliveredEvent), is(true));
+    }
+
+    @Test
+    public void shouldNotContainEventWithDifferentEventType() {
+        Event event = aQueuePaymentEventFixture().toEntity();
+        Event laterEvent = aQueuePaymentEventFixture()
+                .withResourceExternalId(event.getResourceExternalId())
+                .withEventType("AUTHORISATION_SUCCEEDED")
+                .toEntity();
+
+        processedEventKeys.add(event);
+
+        assertThat(processedEventKeys.contains(laterEvent), is(false));
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.queue.eventprocessor;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,6 +9,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.queue.IngestMetrics;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionMetadataService;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
@@ -39,7 +41,8 @@ class PaymentEventProcessorTest {
 
     @BeforeEach
     void setUp() {
-        paymentEventProcessor = new PaymentEventProcessor(eventService, transactionService, transactionMetadataService, refundEventProcessor);
+        paymentEventProcessor = new PaymentEventProcessor(eventService, transactionService, transactionMetadataService, refundEventProcessor,
+                new IngestMetrics(new MetricRegistry()));
     }
 
     @Test
@@ -55,7 +58,7 @@ class PaymentEventProcessorTest {
                 .withEventType("USER_APPROVED_FOR_CAPTURE")
                 .toEntity();
 
-        when(eventService.getEventsForResource(event.getResourceExternalId())).thenReturn(List.of(previousEvent, event));
+        when(eventService.getEventDigestForResource(event)).thenReturn(EventDigest.fromEventList(List.of(previousEvent, event)));
 
         TransactionEntity refundTransaction1 = aTransactionFixture().withExternalId("refund-external-id-1").toEntity();
         TransactionEntity refundTransaction2 = aTransactionFixture().withExternalId("refund-external-id-2").toEntity();
@@ -65,8 +68,8 @@ class PaymentEventProcessorTest {
 
         verify(transactionService).upsertTransactionFor(any(EventDigest.class));
         verify(transactionMetadataService).upsertMetadataFor(event);
-        verify(refundEventProcessor).reprojectRefundTransaction(eq(refundTransaction1.getExternalId()), any(EventDigest.class));
-        verify(refundEventProcessor).reprojectRefundTransaction(eq(refundTransaction2.getExternalId()), any(EventDigest.class));
+        verify(refundEventProcessor).reprojectRefundTransactions(
+                eq(List.of(refundTransaction1.getExternalId(), refundTransaction2.getExternalId())), any(EventDigest.class));
     }
 
     @Test
@@ -82,13 +85,13 @@ class PaymentEventProcessorTest {
                 .withEventType("PAYMENT_STARTED")
                 .toEntity();
 
-        when(eventService.getEventsForResource(event.getResourceExternalId())).thenReturn(List.of(previousEvent, event));
+        when(eventService.getEventDigestForResource(event)).thenReturn(EventDigest.fromEventList(List.of(previousEvent, event)));
 
         paymentEventProcessor.process(event);
         verify(transactionService).upsertTransactionFor(any(EventDigest.class));
         verify(transactionMetadataService).upsertMetadataFor(event);
         verify(transactionService, never()).getChildTransactions(any());
-        verify(refundEventProcessor, never()).reprojectRefundTransaction(any(), any());
+        verify(refundEventProcessor, never()).reprojectRefundTransactions(any(), any());
     }
 
     @Test
@@ -104,12 +107,12 @@ class PaymentEventProcessorTest {
                 .withEventType("USER_APPROVED_FOR_CAPTURE")
                 .toEntity();
 
-        when(eventService.getEventsForResource(event.getResourceExternalId())).thenReturn(List.of(previousEvent, event));
+        when(eventService.getEventDigestForResource(event)).thenReturn(EventDigest.fromEventList(List.of(previousEvent, event)));
 
         paymentEventProcessor.process(event);
         verify(transactionService).upsertTransactionFor(any(EventDigest.class));
         verify(transactionMetadataService).upsertMetadataFor(event);
         verify(transactionService, never()).getChildTransactions(any());
-        verify(refundEventProcessor, never()).reprojectRefundTransaction(any(), any());
+        verify(refundEventProcessor, never()).reprojectRefundTransactions(any(), any());
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.queue.eventprocessor;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.GsonBuilder;
@@ -16,10 +17,13 @@ import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.queue.IngestMetrics;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -36,7 +40,7 @@ class RefundEventProcessorTest {
     @Mock
     private TransactionService transactionService;
     @Captor
-    private ArgumentCaptor<TransactionEntity> transactionEntityArgumentCaptor;
+    private ArgumentCaptor<List<TransactionEntity>> transactionEntitiesArgumentCaptor;
 
     private TransactionEntityFactory transactionEntityFactory;
     private RefundEventProcessor refundEventProcessor;
@@ -44,7 +48,8 @@ class RefundEventProcessorTest {
     @BeforeEach
     void setUp() {
         transactionEntityFactory = new TransactionEntityFactory(new ObjectMapper());
-        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory);
+        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory,
+                new IngestMetrics(new MetricRegistry()));
     }
 
     @Test
@@ -68,13 +73,15 @@ class RefundEventProcessorTest {
         EventDigest refundEventDigest = EventDigest.fromEventList(List.of(refundEvent));
 
         String refundExternalId = "refund-external-id";
-        when(eventService.getEventDigestForResource(refundExternalId)).thenReturn(refundEventDigest);
+        when(eventService.getEventDigestsForResources(List.of(refundExternalId)))
+                .thenReturn(Map.of(refundExternalId, refundEventDigest));
 
-        refundEventProcessor.reprojectRefundTransaction(refundExternalId, paymentEventDigest);
+        refundEventProcessor.reprojectRefundTransactions(List.of(refundExternalId), paymentEventDigest);
 
-        verify(transactionService).upsertTransaction(transactionEntityArgumentCaptor.capture());
+        verify(transactionService).upsertTransactions(transactionEntitiesArgumentCaptor.capture());
 
-        TransactionEntity transactionEntity = transactionEntityArgumentCaptor.getValue();
+        assertThat(transactionEntitiesArgumentCaptor.getValue().size(), is(1));
+        TransactionEntity transactionEntity = transactionEntitiesArgumentCaptor.getValue().get(0);
         assertThat(transactionEntity.getReference(), is("payment-ref"));
         assertThat(transactionEntity.getAmount(), is(-50L));
 
@@ -83,4 +90,28 @@ class RefundEventProcessorTest {
         assertThat(transactionDetails.get("payment_details").getAsJsonObject(), is(notNullValue()));
         assertThat(transactionDetails.get("payment_details").getAsJsonObject().get("card_type").getAsString(), is("visa"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldUpsertAllReprojectedRefundsOfAPaymentInOneBatch() {
+        EventDigest paymentEventDigest = EventDigest.fromEventList(List.of(anEventFixture()
+                .withEventData("{\"reference\": \"payment-ref\"}")
+                .toEntity()));
+        Map<String, EventDigest> refundEventDigests = new LinkedHashMap<>();
+        refundEventDigests.put("refund-external-id-1",
+                EventDigest.fromEventList(List.of(anEventFixture().withResourceExternalId("refund-external-id-1").toEntity())));
+        refundEventDigests.put("refund-external-id-2",
+                EventDigest.fromEventList(List.of(anEventFixture().withResourceExternalId("refund-external-id-2").toEntity())));
+        when(eventService.getEventDigestsForResources(List.of("refund-external-id-1", "refund-external-id-2")))
+                .thenReturn(refundEventDigests);
+
+        refundEventProcessor.reprojectRefundTransactions(List.of("refund-external-id-1", "refund-external-id-2"), paymentEventDigest);
+
+        verify(transactionService).upsertTransactions(transactionEntitiesArgumentCaptor.capture());
+
+        List<TransactionEntity> transactionEntities = transactionEntitiesArgumentCaptor.getValue();
+        assertThat(transactionEntities.size(), is(2));
+        assertThat(transactionEntities.get(0).getExternalId(), is("refund-external-id-1"));
+        assertThat(transactionEntities.get(1).getExternalId(), is("refund-external-id-2"));
+        assertThat(transactionEntities.get(1).getReference(), is("payment-ref"));
+    }
+}
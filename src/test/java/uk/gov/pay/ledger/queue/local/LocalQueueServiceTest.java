@@ -0,0 +1,136 @@
+package uk.gov.pay.ledger.queue.local;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.pay.ledger.queue.QueueMessage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalQueueServiceTest {
+
+    private static final String QUEUE_URL = "local-queue";
+    private static final String OTHER_QUEUE_URL = "other-local-queue";
+    private static final Instant NOW = Instant.parse("2020-01-01T10:00:00Z");
+
+    private Clock clock;
+    private LocalQueueService localQueueService;
+
+    @BeforeEach
+    public void setUp() {
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        localQueueService = new LocalQueueService(Map.of(), Duration.ofSeconds(30), Duration.ZERO, 10, clock);
+    }
+
+    @Test
+    public void shouldReceiveSentMessagesInBatches() {
+        for (int i = 0; i < 12; i++) {
+            localQueueService.sendMessage(QUEUE_URL, "message-" + i);
+        }
+
+        assertThat(localQueueService.receiveMessages(QUEUE_URL, "All"), hasSize(10));
+        assertThat(localQueueService.receiveMessages(QUEUE_URL, "All"), hasSize(2));
+        assertThat(localQueueService.receiveMessages(QUEUE_URL, "All"), hasSize(0));
+    }
+
+    @Test
+    public void shouldRedeliverMessageThatIsNotDeletedBeforeItsVisibilityTimeout() {
+        localQueueService.sendMessage(QUEUE_URL, "message");
+        QueueMessage received = localQueueService.receiveMessages(QUEUE_URL, "All").get(0);
+
+        when(clock.instant()).thenReturn(NOW.plusSeconds(30));
+        QueueMessage redelivered = localQueueService.receiveMessages(QUEUE_URL, "All").get(0);
+
+        assertThat(redelivered.getMessageId(), is(received.getMessageId()));
+        assertThat(localQueueService.deleteMessages(QUEUE_URL, List.of(received.getReceiptHandle())),
+                contains(received.getReceiptHandle()));
+        assertThat(localQueueService.deleteMessages(QUEUE_URL, List.of(redelivered.getReceiptHandle())), hasSize(0));
+    }
+
+    @Test
+    public void shouldNotRedeliverDeletedMessage() {
+        localQueueService.sendMessage(QUEUE_URL, "message");
+        QueueMessage received = localQueueService.receiveMessages(QUEUE_URL, "All").get(0);
+
+        localQueueService.deleteMessages(QUEUE_URL, List.of(received.getReceiptHandle()));
+
+        when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+        assertThat(localQueueService.receiveMessages(QUEUE_URL, "All"), hasSize(0));
+        assertThat(localQueueService.getApproximateNumberOfMessages(QUEUE_URL), is(0L));
+    }
+
+    @Test
+    public void shouldRedeliverDeferredMessageAfterRetryDelay() {
+        localQueueService.sendMessage(QUEUE_URL, "message");
+        QueueMessage received = localQueueService.receiveMessages(QUEUE_URL, "All").get(0);
+
+        localQueueService.deferMessages(QUEUE_URL, List.of(received.getReceiptHandle()), 120);
+
+        when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+        assertThat(localQueueService.receiveMessages(QUEUE_URL, "All"), hasSize(0));
+
+        when(clock.instant()).thenReturn(NOW.plusSeconds(120));
+        assertThat(localQueueService.receiveMessages(QUEUE_URL, "All"), hasSize(1));
+    }
+
+    @Test
+    public void shouldReplayMessageFileAndAppendSentMessagesToIt(@TempDir Path tempDir) throws IOException {
+        Path messageFile = tempDir.resolve("events.jsonl");
+        Files.writeString(messageFile, "first\nsecond\n");
+
+        LocalQueueService fileQueueService = new LocalQueueService(Map.of(QUEUE_URL, messageFile),
+                Duration.ofSeconds(30), Duration.ZERO, 10, clock);
+        fileQueueService.sendMessage(QUEUE_URL, "third");
+
+        assertThat(fileQueueService.getApproximateNumberOfMessages(QUEUE_URL), is(3L));
+        assertThat(Files.readAllLines(messageFile), contains("first", "second", "third"));
+    }
+
+    @Test
+    public void shouldKeepMessagesSentToEachQueueSeparate() {
+        localQueueService.sendMessage(QUEUE_URL, "message");
+        localQueueService.sendMessage(OTHER_QUEUE_URL, "other-message");
+        localQueueService.sendMessage(OTHER_QUEUE_URL, "another-message");
+
+        List<QueueMessage> received = localQueueService.receiveMessages(QUEUE_URL, "All");
+
+        assertThat(received, hasSize(1));
+        assertThat(received.get(0).getMessageBody(), is("message"));
+        assertThat(localQueueService.getApproximateNumberOfMessages(OTHER_QUEUE_URL), is(2L));
+        assertThat(localQueueService.deleteMessages(OTHER_QUEUE_URL, List.of(received.get(0).getReceiptHandle())),
+                contains(received.get(0).getReceiptHandle()));
+    }
+
+    @Test
+    public void shouldReplayEachQueuesOwnMessageFile(@TempDir Path tempDir) throws IOException {
+        Path messageFile = tempDir.resolve("events.jsonl");
+        Path otherMessageFile = tempDir.resolve("other-events.jsonl");
+        Files.writeString(messageFile, "first\n");
+        Files.writeString(otherMessageFile, "other-first\nother-second\n");
+
+        LocalQueueService fileQueueService = new LocalQueueService(
+                Map.of(QUEUE_URL, messageFile, OTHER_QUEUE_URL, otherMessageFile),
+                Duration.ofSeconds(30), Duration.ZERO, 10, clock);
+        fileQueueService.sendMessage(OTHER_QUEUE_URL, "other-third");
+
+        assertThat(fileQueueService.getApproximateNumberOfMessages(QUEUE_URL), is(1L));
+        assertThat(fileQueueService.getApproximateNumberOfMessages(OTHER_QUEUE_URL), is(3L));
+        assertThat(Files.readAllLines(messageFile), contains("first"));
+        assertThat(Files.readAllLines(otherMessageFile), contains("other-first", "other-second", "other-third"));
+    }
+}
@@ -0,0 +1,98 @@
+package uk.gov.pay.ledger.queue.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.queue.managed.QueueMessageReceiverAutoscaler.Decision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class QueueMessageReceiverAutoscalerTest {
+
+    private MetricRegistry metricRegistry;
+    private QueueMessageReceiverAutoscaler autoscaler;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        autoscaler = new QueueMessageReceiverAutoscaler(1, 4, 1, 8, 100, 60, true, metricRegistry);
+    }
+
+    @Test
+    public void shouldStartAtMinimumConcurrencyWhenEnabled() {
+        assertThat(autoscaler.getActivePollers(), is(1));
+        assertThat(autoscaler.getActiveWorkers(), is(1));
+    }
+
+    @Test
+    public void shouldStartAtMaximumConcurrencyWhenDisabled() {
+        autoscaler = new QueueMessageReceiverAutoscaler(1, 4, 1, 8, 100, 60, false, new MetricRegistry());
+
+        assertThat(autoscaler.getActivePollers(), is(4));
+        assertThat(autoscaler.getActiveWorkers(), is(8));
+    }
+
+    @Test
+    public void shouldDoubleWorkersAndPollersWhenBacklogGrows() {
+        assertThat(autoscaler.adjust(500, 1), is(Decision.SCALE_UP));
+        assertThat(autoscaler.getActiveWorkers(), is(2));
+        assertThat(autoscaler.getActivePollers(), is(2));
+
+        assertThat(autoscaler.adjust(500, 1), is(Decision.SCALE_UP));
+        assertThat(autoscaler.adjust(500, 1), is(Decision.SCALE_UP));
+        assertThat(autoscaler.getActiveWorkers(), is(8));
+        assertThat(autoscaler.getActivePollers(), is(4));
+
+        assertThat(autoscaler.adjust(5000, 1), is(Decision.HOLD));
+        assertThat(metricRegistry.counter("queue-message-receiver.autoscaler.scale-ups").getCount(), is(3L));
+    }
+
+    @Test
+    public void shouldScaleUpWhenIngestLagIsTooHighEvenWithASmallBacklog() {
+        assertThat(autoscaler.adjust(10, 120), is(Decision.SCALE_UP));
+        assertThat(autoscaler.getActiveWorkers(), is(2));
+    }
+
+    @Test
+    public void shouldIgnoreIngestLagWhenQueueIsEmpty() {
+        assertThat(autoscaler.adjust(0, 120), is(Decision.HOLD));
+        assertThat(autoscaler.getActiveWorkers(), is(1));
+    }
+
+    @Test
+    public void shouldRemoveOneWorkerAtATimeOnceBacklogHasDrained() {
+        autoscaler.adjust(500, 1);
+        autoscaler.adjust(500, 1);
+        assertThat(autoscaler.getActiveWorkers(), is(4));
+        assertThat(autoscaler.getActivePollers(), is(4));
+
+        assertThat(autoscaler.adjust(300, 1), is(Decision.HOLD));
+        assertThat(autoscaler.adjust(0, 1), is(Decision.SCALE_DOWN));
+        assertThat(autoscaler.getActiveWorkers(), is(3));
+        assertThat(autoscaler.getActivePollers(), is(3));
+        assertThat(autoscaler.adjust(0, 1), is(Decision.SCALE_DOWN));
+        assertThat(autoscaler.adjust(0, 1), is(Decision.SCALE_DOWN));
+        assertThat(autoscaler.adjust(0, 1), is(Decision.HOLD));
+        assertThat(autoscaler.getActiveWorkers(), is(1));
+        assertThat(autoscaler.getActivePollers(), is(1));
+        assertThat(metricRegistry.counter("queue-message-receiver.autoscaler.scale-downs").getCount(), is(3L));
+    }
+
+    @Test
+    public void shouldScalePollersWhenWorkersAreFixed() {
+        autoscaler = new QueueMessageReceiverAutoscaler(1, 4, 8, 8, 100, 60, true, new MetricRegistry());
+        assertThat(autoscaler.getActiveWorkers(), is(8));
+        assertThat(autoscaler.getActivePollers(), is(1));
+
+        assertThat(autoscaler.adjust(2000, 1), is(Decision.SCALE_UP));
+        assertThat(autoscaler.getActivePollers(), is(2));
+        assertThat(autoscaler.adjust(10, 120), is(Decision.SCALE_UP));
+        assertThat(autoscaler.getActivePollers(), is(4));
+        assertThat(autoscaler.getActiveWorkers(), is(8));
+
+        assertThat(autoscaler.adjust(0, 1), is(Decision.SCALE_DOWN));
+        assertThat(autoscaler.getActivePollers(), is(3));
+        assertThat(autoscaler.getActiveWorkers(), is(8));
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.pay.ledger.queue.managed;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.ResourceType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+
+public class QueueMessageReceiverTest {
+
+    @Test
+    public void laneKeyShouldBeResourceExternalIdForPaymentEvents() {
+        Event event = aQueuePaymentEventFixture()
+                .withResourceExternalId("payment-id")
+                .toEntity();
+
+        assertThat(QueueMessageReceiver.laneKey(event), is("payment-id"));
+    }
+
+    @Test
+    public void laneKeyShouldBeParentResourceExternalIdForRefundEvents() {
+        Event event = aQueuePaymentEventFixture()
+                .withResourceType(ResourceType.REFUND)
+                .withResourceExternalId("refund-id")
+                .withParentResourceExternalId("payment-id")
+                .toEntity();
+
+        assertThat(QueueMessageReceiver.laneKey(event), is("payment-id"));
+    }
+
+    @Test
+    public void handOffsFromPriorityQueuesShouldComeBeforeOthersAndOtherwiseInOrderOfReceipt() {
+        PriorityBlockingQueue<QueueMessageReceiver.HandOff> lane = new PriorityBlockingQueue<>();
+        QueueMessageReceiver.HandOff firstBackfill = new QueueMessageReceiver.HandOff(null, false, 1);
+        QueueMessageReceiver.HandOff secondBackfill = new QueueMessageReceiver.HandOff(null, false, 2);
+        QueueMessageReceiver.HandOff live = new QueueMessageReceiver.HandOff(null, true, 3);
+        lane.addAll(List.of(secondBackfill, live, firstBackfill));
+
+        List<QueueMessageReceiver.HandOff> handOffs = new ArrayList<>();
+        lane.drainTo(handOffs);
+
+        assertThat(handOffs, contains(live, firstBackfill, secondBackfill));
+    }
+}
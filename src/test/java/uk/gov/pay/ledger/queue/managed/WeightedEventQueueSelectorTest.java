@@ -0,0 +1,48 @@
+package uk.gov.pay.ledger.queue.managed;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class WeightedEventQueueSelectorTest {
+
+    private final EventQueueConfig liveQueue = new EventQueueConfig("event", "live-queue-url", 3, true);
+    private final EventQueueConfig backfillQueue = new EventQueueConfig("backfill", "backfill-queue-url", 1, false);
+
+    @Test
+    public void shouldChooseQueuesInProportionToTheirWeights() {
+        WeightedEventQueueSelector selector = new WeightedEventQueueSelector(List.of(liveQueue, backfillQueue));
+
+        List<String> chosenQueues = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            chosenQueues.add(selector.next(true).get().getName());
+        }
+
+        assertThat(chosenQueues, contains("event", "event", "backfill", "event",
+                "event", "event", "backfill", "event"));
+    }
+
+    @Test
+    public void shouldChooseOnlyPriorityQueuesWhenNonPriorityQueuesAreExcluded() {
+        WeightedEventQueueSelector selector = new WeightedEventQueueSelector(List.of(liveQueue, backfillQueue));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(selector.next(false).get().getName(), is("event"));
+        }
+    }
+
+    @Test
+    public void shouldChooseNothingWhenThereAreNoPriorityQueuesAndNonPriorityQueuesAreExcluded() {
+        WeightedEventQueueSelector selector = new WeightedEventQueueSelector(List.of(backfillQueue));
+
+        assertThat(selector.next(false), is(Optional.empty()));
+        assertThat(selector.hasNonPriorityQueues(), is(true));
+    }
+}
@@ -1,6 +1,7 @@
 package uk.gov.pay.ledger.queue.sqs;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -16,6 +17,7 @@ import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
 import uk.gov.pay.ledger.queue.EventMessage;
 import uk.gov.pay.ledger.queue.EventQueue;
+import uk.gov.pay.ledger.queue.IngestMetrics;
 import uk.gov.pay.ledger.queue.QueueException;
 import uk.gov.pay.ledger.queue.QueueMessage;
 import uk.gov.pay.ledger.rule.AppWithPostgresAndSqsRule;
@@ -49,10 +51,11 @@ public class EventQueueIT {
         SqsConfig sqsConfig = mock(SqsConfig.class);
         when(sqsConfig.getMessageMaximumBatchSize()).thenReturn(10);
         when(sqsConfig.getMessageMaximumWaitTimeInSeconds()).thenReturn(1);
+        when(sqsConfig.getMessageVisibilityTimeoutInSeconds()).thenReturn(30);
         LedgerConfig mockConfig = mock(LedgerConfig.class);
         when(mockConfig.getSqsConfig()).thenReturn(sqsConfig);
 
-        SqsQueueService sqsQueueService = new SqsQueueService(client, mockConfig);
+        SqsQueueService sqsQueueService = new SqsQueueService(client, mockConfig, new IngestMetrics(new MetricRegistry()));
 
         List<QueueMessage> result = sqsQueueService.receiveMessages(SqsTestDocker.getQueueUrl("event-queue"), "All");
         assertFalse(result.isEmpty());
@@ -67,6 +70,7 @@ public class EventQueueIT {
         SqsConfig sqsConfig = mock(SqsConfig.class);
         when(sqsConfig.getMessageMaximumBatchSize()).thenReturn(10);
         when(sqsConfig.getMessageMaximumWaitTimeInSeconds()).thenReturn(1);
+        when(sqsConfig.getMessageVisibilityTimeoutInSeconds()).thenReturn(30);
         when(sqsConfig.getEventQueueUrl()).thenReturn(SqsTestDocker.getQueueUrl("event-queue"));
         QueueMessageReceiverConfig queueReceiverConfig = mock(QueueMessageReceiverConfig.class);
         when(queueReceiverConfig.getMessageRetryDelayInSeconds()).thenReturn(10);
@@ -74,8 +78,9 @@ public class EventQueueIT {
         when(mockConfig.getSqsConfig()).thenReturn(sqsConfig);
         when(mockConfig.getQueueMessageReceiverConfig()).thenReturn(queueReceiverConfig);
 
-        SqsQueueService sqsQueueService = new SqsQueueService(client, mockConfig);
-        EventQueue eventQueue = new EventQueue(sqsQueueService, mockConfig, new ObjectMapper());
+        SqsQueueService sqsQueueService = new SqsQueueService(client, mockConfig, new IngestMetrics(new MetricRegistry()));
+        EventQueue eventQueue = new EventQueue(sqsQueueService, mock(SqsMessageVisibilityHeartbeat.class),
+                new IngestMetrics(new MetricRegistry()), mockConfig, new ObjectMapper());
 
         List<EventMessage> result = eventQueue.retrieveEvents();
         assertFalse(result.isEmpty());
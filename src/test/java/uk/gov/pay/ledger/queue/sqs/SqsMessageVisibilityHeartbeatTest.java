@@ -0,0 +1,102 @@
+package uk.gov.pay.ledger.queue.sqs;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.queue.QueueService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SqsMessageVisibilityHeartbeatTest {
+
+    private static final String QUEUE_URL = "http://queue-url";
+    private static final Instant START = Instant.parse("2020-01-01T10:00:00Z");
+
+    @Mock
+    private QueueService queueService;
+
+    private Clock clock;
+    private MetricRegistry metricRegistry;
+    private SqsMessageVisibilityHeartbeat heartbeat;
+
+    @BeforeEach
+    public void setUp() {
+        clock = mock(Clock.class);
+        metricRegistry = new MetricRegistry();
+        heartbeat = new SqsMessageVisibilityHeartbeat(queueService, Duration.ofSeconds(30),
+                Duration.ofSeconds(300), metricRegistry, clock);
+    }
+
+    @Test
+    public void shouldNotExtendVisibilityBeforeHalfTheTimeoutHasPassed() {
+        when(clock.instant()).thenReturn(START, START.plusSeconds(10));
+
+        heartbeat.track(QUEUE_URL, List.of("handle-1", "handle-2"));
+        heartbeat.extendVisibility();
+
+        verify(queueService, never()).deferMessages(anyString(), anyList(), anyInt());
+    }
+
+    @Test
+    public void shouldExtendVisibilityOfInFlightMessagesInOneBatch() {
+        when(clock.instant()).thenReturn(START, START.plusSeconds(20));
+        when(queueService.deferMessages(QUEUE_URL, List.of("handle-1", "handle-2"), 30)).thenReturn(List.of());
+
+        heartbeat.track(QUEUE_URL, List.of("handle-1", "handle-2"));
+        heartbeat.extendVisibility();
+
+        assertThat(metricRegistry.counter("sqs-visibility-heartbeat.extensions").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotExtendVisibilityOfUntrackedMessages() {
+        when(clock.instant()).thenReturn(START, START.plusSeconds(20));
+        when(queueService.deferMessages(QUEUE_URL, List.of("handle-2"), 30)).thenReturn(List.of());
+
+        heartbeat.track(QUEUE_URL, List.of("handle-1", "handle-2"));
+        heartbeat.untrack(List.of("handle-1"));
+        heartbeat.extendVisibility();
+
+        assertThat(metricRegistry.getGauges().get("sqs-visibility-heartbeat.in-flight-messages").getValue(), is(1));
+    }
+
+    @Test
+    public void shouldStopTrackingMessagesWhoseVisibilityCouldNotBeExtended() {
+        when(clock.instant()).thenReturn(START, START.plusSeconds(20));
+        when(queueService.deferMessages(QUEUE_URL, List.of("handle-1"), 30)).thenReturn(List.of("handle-1"));
+
+        heartbeat.track(QUEUE_URL, List.of("handle-1"));
+        heartbeat.extendVisibility();
+
+        assertThat(metricRegistry.counter("sqs-visibility-heartbeat.extension-failures").getCount(), is(1L));
+        assertThat(metricRegistry.getGauges().get("sqs-visibility-heartbeat.in-flight-messages").getValue(), is(0));
+    }
+
+    @Test
+    public void shouldAbandonMessagesInFlightForLongerThanTheMaximum() {
+        when(clock.instant()).thenReturn(START, START.plusSeconds(301));
+
+        heartbeat.track(QUEUE_URL, List.of("handle-1"));
+        heartbeat.extendVisibility();
+
+        verify(queueService, never()).deferMessages(anyString(), anyList(), anyInt());
+        assertThat(metricRegistry.counter("sqs-visibility-heartbeat.abandoned").getCount(), is(1L));
+    }
+}
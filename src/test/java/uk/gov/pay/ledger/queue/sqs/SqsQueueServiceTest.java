@@ -1,28 +1,42 @@
 package uk.gov.pay.ledger.queue.sqs;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.SdkClientException;
+import com.codahale.metrics.MetricRegistry;
 import com.amazonaws.services.sqs.model.AmazonSQSException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.app.LedgerConfig;
 import uk.gov.pay.ledger.app.config.SqsConfig;
+import uk.gov.pay.ledger.queue.IngestMetrics;
 import uk.gov.pay.ledger.queue.QueueException;
 import uk.gov.pay.ledger.queue.QueueMessage;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,17 +48,20 @@ public class SqsQueueServiceTest {
     @Mock
     private LedgerConfig ledgerConfig;
 
+    private MetricRegistry metricRegistry;
     private SqsQueueService sqsQueueService;
 
     @BeforeEach
     public void setUp() {
+        metricRegistry = new MetricRegistry();
         SqsConfig sqsConfig = mock(SqsConfig.class);
         when(sqsConfig.getMessageMaximumBatchSize()).thenReturn(10);
         when(sqsConfig.getMessageMaximumWaitTimeInSeconds()).thenReturn(20);
+        when(sqsConfig.getMessageVisibilityTimeoutInSeconds()).thenReturn(30);
 
         when(ledgerConfig.getSqsConfig()).thenReturn(sqsConfig);
 
-        sqsQueueService = new SqsQueueService(sqsClient, ledgerConfig);
+        sqsQueueService = new SqsQueueService(sqsClient, ledgerConfig, new IngestMetrics(metricRegistry));
     }
 
     @Test
@@ -70,6 +87,20 @@ public class SqsQueueServiceTest {
         assertThat(queueMessages.get(1).getReceiptHandle(), is("mock-message-receipt-handle-2"));
     }
 
+    @Test
+    public void receiveMessagesShouldRequestTheConfiguredVisibilityTimeout() throws QueueException {
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(new ReceiveMessageResult());
+
+        sqsQueueService.receiveMessages("some-queue-url", "some-attribute-name");
+
+        ArgumentCaptor<ReceiveMessageRequest> requestCaptor = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+        verify(sqsClient).receiveMessage(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().getVisibilityTimeout(), is(30));
+        assertThat(requestCaptor.getValue().getMaxNumberOfMessages(), is(10));
+        assertThat(requestCaptor.getValue().getWaitTimeSeconds(), is(20));
+        assertThat(metricRegistry.timer("ingest.stage.receive").getCount(), is(1L));
+    }
+
     @Test
     public void receiveMessagesShouldReturnEmptyListWhenNoMessagesAvailable() throws QueueException {
         ReceiveMessageResult receiveMessageResult = new ReceiveMessageResult();
@@ -84,4 +115,54 @@ public class SqsQueueServiceTest {
         when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenThrow(AmazonSQSException.class);
         assertThrows(QueueException.class, () -> sqsQueueService.receiveMessages("some-queue-url", "some-attribute-name"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deleteMessagesShouldDeleteInBatchesOfTenAndReturnFailedReceiptHandles() {
+        List<String> receiptHandles = receiptHandles(12);
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+                .thenReturn(new DeleteMessageBatchResult()
+                        .withFailed(new BatchResultErrorEntry().withId("3").withCode("ReceiptHandleIsInvalid")))
+                .thenReturn(new DeleteMessageBatchResult());
+
+        List<String> failedReceiptHandles = sqsQueueService.deleteMessages("some-queue-url", receiptHandles);
+
+        ArgumentCaptor<DeleteMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqsClient, times(2)).deleteMessageBatch(requestCaptor.capture());
+        assertThat(requestCaptor.getAllValues().get(0).getEntries().size(), is(10));
+        assertThat(requestCaptor.getAllValues().get(1).getEntries().size(), is(2));
+        assertThat(requestCaptor.getAllValues().get(1).getEntries().get(0).getReceiptHandle(), is("receipt-handle-10"));
+        assertThat(failedReceiptHandles, contains("receipt-handle-3"));
+        assertThat(metricRegistry.timer("ingest.stage.acknowledge").getCount(), is(2L));
+    }
+
+    @Test
+    public void deleteMessagesShouldReturnAllReceiptHandlesOfBatchIfRequestFails() {
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenThrow(SdkClientException.class);
+
+        List<String> failedReceiptHandles = sqsQueueService.deleteMessages("some-queue-url", receiptHandles(2));
+
+        assertThat(failedReceiptHandles, contains("receipt-handle-0", "receipt-handle-1"));
+    }
+
+    @Test
+    public void deferMessagesShouldChangeVisibilityInBatchAndReturnFailedReceiptHandles() {
+        when(sqsClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(new ChangeMessageVisibilityBatchResult()
+                        .withFailed(new BatchResultErrorEntry().withId("1").withCode("ReceiptHandleIsInvalid")));
+
+        List<String> failedReceiptHandles = sqsQueueService.deferMessages("some-queue-url", receiptHandles(3), 900);
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor = ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqsClient).changeMessageVisibilityBatch(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().getEntries().size(), is(3));
+        assertThat(requestCaptor.getValue().getEntries().get(0).getVisibilityTimeout(), is(900));
+        assertThat(failedReceiptHandles, contains("receipt-handle-1"));
+        assertThat(metricRegistry.timer("ingest.stage.visibility-change").getCount(), is(1L));
+    }
+
+    private List<String> receiptHandles(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> "receipt-handle-" + i)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,123 @@
+package uk.gov.pay.ledger.referencedata;
+
+import com.codahale.metrics.MetricRegistry;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.event.dao.ResourceTypeDao;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.metadatakey.dao.MetadataKeyDao;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReferenceDataCacheTest {
+
+    @Mock
+    private Jdbi jdbi;
+
+    @Mock
+    private Handle handle;
+
+    @Mock
+    private ResourceTypeDao resourceTypeDao;
+
+    @Mock
+    private MetadataKeyDao metadataKeyDao;
+
+    @Mock
+    private MetadataKeyDao handleMetadataKeyDao;
+
+    private MetricRegistry metricRegistry;
+    private ReferenceDataCache referenceDataCache;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        referenceDataCache = new ReferenceDataCache(jdbi, resourceTypeDao, metadataKeyDao, metricRegistry);
+
+        lenient().when(jdbi.withHandle(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0, HandleCallback.class).withHandle(handle));
+        lenient().when(handle.attach(MetadataKeyDao.class)).thenReturn(handleMetadataKeyDao);
+    }
+
+    @Test
+    public void shouldResolveIdsWarmedAtStartupWithoutQueryingDatabase() {
+        when(resourceTypeDao.getResourceTypeIdsByName()).thenReturn(Map.of("PAYMENT", 1, "REFUND", 2));
+        when(metadataKeyDao.getMetadataKeyIdsByKey()).thenReturn(Map.of("reconciled", 10L));
+
+        referenceDataCache.start();
+
+        assertThat(referenceDataCache.getResourceTypeId(ResourceType.REFUND), is(2));
+        assertThat(referenceDataCache.getOrCreateMetadataKeyId("reconciled"), is(10L));
+        verify(resourceTypeDao, never()).getResourceTypeIdByName(anyString());
+        verify(jdbi, never()).withHandle(any());
+        assertThat(metricRegistry.counter("reference-data-cache.resource-type.hits").getCount(), is(1L));
+        assertThat(metricRegistry.counter("reference-data-cache.metadata-key.hits").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldLoadResourceTypeIdOnMissAndCacheIt() {
+        when(resourceTypeDao.getResourceTypeIdByName("PAYOUT")).thenReturn(5);
+
+        assertThat(referenceDataCache.getResourceTypeId(ResourceType.PAYOUT), is(5));
+        assertThat(referenceDataCache.getResourceTypeId(ResourceType.PAYOUT), is(5));
+
+        verify(resourceTypeDao, times(1)).getResourceTypeIdByName("PAYOUT");
+        assertThat(metricRegistry.counter("reference-data-cache.resource-type.misses").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldInsertNewMetadataKeyOnMissAndCacheIt() {
+        when(handleMetadataKeyDao.insertIfNotExist("new-key")).thenReturn(Optional.of(11L));
+
+        assertThat(referenceDataCache.getOrCreateMetadataKeyId("new-key"), is(11L));
+        assertThat(referenceDataCache.getOrCreateMetadataKeyId("new-key"), is(11L));
+
+        verify(handleMetadataKeyDao, times(1)).insertIfNotExist("new-key");
+        verify(jdbi, never()).open();
+        assertThat(metricRegistry.counter("reference-data-cache.metadata-key.misses").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotCacheMetadataKeyInsertedInsideTransaction() {
+        when(handle.isInTransaction()).thenReturn(true);
+        when(handleMetadataKeyDao.insertIfNotExist("new-key")).thenReturn(Optional.of(11L));
+
+        assertThat(referenceDataCache.getOrCreateMetadataKeyId("new-key"), is(11L));
+
+        when(handle.isInTransaction()).thenReturn(false);
+        when(handleMetadataKeyDao.insertIfNotExist("new-key")).thenReturn(Optional.empty());
+        when(handleMetadataKeyDao.findIdByKey("new-key")).thenReturn(Optional.of(11L));
+
+        assertThat(referenceDataCache.getOrCreateMetadataKeyId("new-key"), is(11L));
+        assertThat(referenceDataCache.getOrCreateMetadataKeyId("new-key"), is(11L));
+
+        verify(handleMetadataKeyDao, times(1)).findIdByKey("new-key");
+        assertThat(metricRegistry.counter("reference-data-cache.metadata-key.misses").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldFindMetadataKeyInsertedElsewhereOnMiss() {
+        when(handleMetadataKeyDao.insertIfNotExist("existing-key")).thenReturn(Optional.empty());
+        when(handleMetadataKeyDao.findIdByKey("existing-key")).thenReturn(Optional.of(12L));
+
+        assertThat(referenceDataCache.getOrCreateMetadataKeyId("existing-key"), is(12L));
+    }
+}
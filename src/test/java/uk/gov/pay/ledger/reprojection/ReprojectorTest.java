@@ -0,0 +1,167 @@
+package uk.gov.pay.ledger.reprojection;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.payout.dao.PayoutDao;
+import uk.gov.pay.ledger.payout.model.PayoutEntityFactory;
+import uk.gov.pay.ledger.reprojection.dao.ReprojectionDao;
+import uk.gov.pay.ledger.reprojection.model.ReprojectionCheckpoint;
+import uk.gov.pay.ledger.transaction.dao.TransactionDao;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+
+@ExtendWith(MockitoExtension.class)
+public class ReprojectorTest {
+
+    private static final String RUN_NAME = "test-run";
+
+    @Mock
+    private ReprojectionDao reprojectionDao;
+    @Mock
+    private EventDao eventDao;
+    @Mock
+    private TransactionDao transactionDao;
+    @Mock
+    private PayoutDao payoutDao;
+
+    @Captor
+    private ArgumentCaptor<List<TransactionEntity>> transactionsCaptor;
+    @Captor
+    private ArgumentCaptor<List<ReprojectionCheckpoint>> checkpointsCaptor;
+
+    private Reprojector reprojector;
+
+    @BeforeEach
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        reprojector = new Reprojector(reprojectionDao, eventDao, transactionDao, payoutDao,
+                new TransactionEntityFactory(objectMapper), new PayoutEntityFactory(objectMapper));
+    }
+
+    @Test
+    public void shouldSplitEventTableIntoPartitionsBetweenSampledBounds() {
+        when(reprojectionDao.findCheckpoints(RUN_NAME)).thenReturn(List.of());
+        when(reprojectionDao.findPartitionBounds(3, 1.0)).thenReturn(List.of("h", "p"));
+
+        List<ReprojectionCheckpoint> checkpoints = reprojector.prepareCheckpoints(RUN_NAME, 3, 1.0, false);
+
+        verify(reprojectionDao).insertCheckpoints(checkpointsCaptor.capture());
+        assertThat(checkpointsCaptor.getValue(), is(checkpoints));
+        assertThat(checkpoints, hasSize(3));
+        assertThat(checkpoints.get(0).getLowerBound(), is(nullValue()));
+        assertThat(checkpoints.get(0).getUpperBound(), is("h"));
+        assertThat(checkpoints.get(1).getLowerBound(), is("h"));
+        assertThat(checkpoints.get(1).getUpperBound(), is("p"));
+        assertThat(checkpoints.get(2).getLowerBound(), is("p"));
+        assertThat(checkpoints.get(2).getUpperBound(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldResumeExistingRun() {
+        List<ReprojectionCheckpoint> existingCheckpoints = List.of(
+                new ReprojectionCheckpoint(RUN_NAME, 0, null, null, "m", 10, false));
+        when(reprojectionDao.findCheckpoints(RUN_NAME)).thenReturn(existingCheckpoints);
+
+        assertThat(reprojector.prepareCheckpoints(RUN_NAME, 3, 1.0, false), is(existingCheckpoints));
+        verify(reprojectionDao, never()).insertCheckpoints(checkpointsCaptor.capture());
+    }
+
+    @Test
+    public void shouldProjectPagesAndCheckpointAfterEachUntilPartitionIsExhausted() {
+        ReprojectionCheckpoint checkpoint = new ReprojectionCheckpoint(RUN_NAME, 1, "a", "z", "c", 2, false);
+        Event paymentEvent = paymentEvent("d", ZonedDateTime.parse("2020-01-01T10:00:00Z"));
+        when(reprojectionDao.findResourceExternalIds("c", "z", 100)).thenReturn(List.of("d"));
+        when(reprojectionDao.findEventsForResourceRange("c", "d")).thenReturn(List.of(paymentEvent));
+        when(reprojectionDao.findResourceExternalIds("d", "z", 100)).thenReturn(List.of());
+        when(transactionDao.upsertAll(anyList())).thenReturn(1);
+
+        ReprojectionProgress progress = new ReprojectionProgress();
+        reprojector.reprojectPartition(checkpoint, 100, progress);
+
+        verify(transactionDao).upsertAll(transactionsCaptor.capture());
+        assertThat(transactionsCaptor.getValue().get(0).getExternalId(), is("d"));
+        verify(reprojectionDao).updateCheckpoint(RUN_NAME, 1, "d", 1);
+        verify(reprojectionDao).completeCheckpoint(RUN_NAME, 1);
+        assertThat(progress.getRowsUpserted(), is(1L));
+    }
+
+    @Test
+    public void shouldFoldEventsOfEachResourceIntoOneTransaction() {
+        Event latestPaymentEvent = paymentEvent("payment-1", ZonedDateTime.parse("2020-01-01T10:05:00Z"));
+        Event earliestPaymentEvent = paymentEvent("payment-1", ZonedDateTime.parse("2020-01-01T10:00:00Z"));
+        Event otherPaymentEvent = paymentEvent("payment-2", ZonedDateTime.parse("2020-01-01T10:00:00Z"));
+        when(transactionDao.upsertAll(anyList())).thenReturn(2);
+
+        int rowsUpserted = reprojector.project(List.of(latestPaymentEvent, earliestPaymentEvent, otherPaymentEvent));
+
+        verify(transactionDao).upsertAll(transactionsCaptor.capture());
+        assertThat(rowsUpserted, is(2));
+        assertThat(transactionsCaptor.getValue().get(0).getExternalId(), is("payment-1"));
+        assertThat(transactionsCaptor.getValue().get(0).getEventCount(), is(2));
+        assertThat(transactionsCaptor.getValue().get(1).getExternalId(), is("payment-2"));
+        verify(payoutDao).upsertAll(List.of());
+    }
+
+    @Test
+    public void shouldReportOnlyRowsActuallyWritten() {
+        Event paymentEvent = paymentEvent("payment-1", ZonedDateTime.parse("2020-01-01T10:00:00Z"));
+        Event otherPaymentEvent = paymentEvent("payment-2", ZonedDateTime.parse("2020-01-01T10:00:00Z"));
+        when(transactionDao.upsertAll(anyList())).thenReturn(1);
+
+        assertThat(reprojector.project(List.of(paymentEvent, otherPaymentEvent)), is(1));
+    }
+
+    @Test
+    public void shouldLoadParentPaymentsOfRefundsOutsideThePageWithOneQuery() {
+        Event refundEvent = aQueuePaymentEventFixture()
+                .withResourceType(ResourceType.REFUND)
+                .withResourceExternalId("refund-1")
+                .withParentResourceExternalId("payment-1")
+                .withEventType("REFUND_CREATED_BY_USER")
+                .withEventData("{\"amount\": 100}")
+                .toEntity();
+        Event paymentEvent = paymentEvent("payment-1", ZonedDateTime.parse("2020-01-01T10:00:00Z"));
+        when(eventDao.findEventsForExternalIds(Set.of("payment-1"))).thenReturn(List.of(paymentEvent));
+
+        reprojector.project(List.of(refundEvent));
+
+        verify(transactionDao).upsertAll(transactionsCaptor.capture());
+        TransactionEntity refund = transactionsCaptor.getValue().get(0);
+        assertThat(refund.getExternalId(), is("refund-1"));
+        assertThat(refund.getParentExternalId(), is("payment-1"));
+        assertThat(refund.getReference(), is("aref"));
+        assertThat(refund.getEmail(), is("j.doe@example.org"));
+    }
+
+    private Event paymentEvent(String externalId, ZonedDateTime eventDate) {
+        return aQueuePaymentEventFixture()
+                .withResourceExternalId(externalId)
+                .withEventDate(eventDate)
+                .withEventType("PAYMENT_CREATED")
+                .withDefaultEventDataForEventType("PAYMENT_CREATED")
+                .toEntity();
+    }
+}
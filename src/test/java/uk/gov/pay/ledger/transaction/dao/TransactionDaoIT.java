@@ -249,6 +249,81 @@ class TransactionDaoIT {
         assertThat(retrievedTransaction.getState(), is(modifiedTransaction.getState()));
     }
 
+    @Test
+    void shouldUpsertAllTransactionsInOneBatch() {
+        TransactionEntity existingTransaction = aTransactionFixture()
+                .withEventCount(1)
+                .withState(TransactionState.CREATED)
+                .insert(rule.getJdbi())
+                .toEntity();
+        TransactionEntity modifiedTransaction = aTransactionFixture()
+                .withExternalId(existingTransaction.getExternalId())
+                .withEventCount(2)
+                .withState(TransactionState.SUBMITTED)
+                .toEntity();
+        TransactionEntity newTransaction = aTransactionFixture()
+                .withState(TransactionState.CREATED)
+                .toEntity();
+
+        transactionDao.upsertAll(List.of(modifiedTransaction, newTransaction));
+
+        assertThat(transactionDao.findTransactionByExternalId(existingTransaction.getExternalId()).get().getState(),
+                is(TransactionState.SUBMITTED));
+        assertThat(transactionDao.findTransactionByExternalId(newTransaction.getExternalId()).isPresent(), is(true));
+    }
+
+    @Test
+    void shouldNotRewriteTransactionIfItsProjectionAndEventCountAreUnchanged() {
+        TransactionEntity transaction = aTransactionFixture()
+                .withEventCount(1)
+                .withState(TransactionState.CREATED)
+                .toEntity();
+
+        assertThat(transactionDao.upsert(transaction), is(true));
+        assertThat(transactionDao.upsert(transaction), is(false));
+    }
+
+    @Test
+    void shouldUpdateEventCountIfOnlyTheEventCountChanged() {
+        TransactionFixture fixture = aTransactionFixture()
+                .withEventCount(1)
+                .withState(TransactionState.CREATED);
+        TransactionEntity transaction = fixture.toEntity();
+        TransactionEntity sameProjectionFromMoreEvents = fixture.withEventCount(2).toEntity();
+
+        assertThat(transactionDao.upsert(transaction), is(true));
+        assertThat(sameProjectionFromMoreEvents.getProjectionFingerprint(), is(transaction.getProjectionFingerprint()));
+        assertThat(transactionDao.upsert(sameProjectionFromMoreEvents), is(true));
+
+        TransactionEntity retrievedTransaction = transactionDao.findTransactionByExternalId(transaction.getExternalId()).get();
+
+        assertThat(retrievedTransaction.getEventCount(), is(2));
+    }
+
+    @Test
+    void shouldNotOverwriteTransactionWithOlderProjectionAfterOnlyItsEventCountChanged() {
+        TransactionFixture fixture = aTransactionFixture()
+                .withEventCount(1)
+                .withState(TransactionState.SUBMITTED);
+        TransactionEntity transaction = fixture.toEntity();
+        TransactionEntity sameProjectionFromMoreEvents = fixture.withEventCount(3).toEntity();
+        TransactionEntity olderProjection = aTransactionFixture()
+                .withExternalId(transaction.getExternalId())
+                .withEventCount(2)
+                .withState(TransactionState.CREATED)
+                .toEntity();
+
+        transactionDao.upsert(transaction);
+        transactionDao.upsert(sameProjectionFromMoreEvents);
+
+        assertThat(transactionDao.upsert(olderProjection), is(false));
+
+        TransactionEntity retrievedTransaction = transactionDao.findTransactionByExternalId(transaction.getExternalId()).get();
+
+        assertThat(retrievedTransaction.getState(), is(TransactionState.SUBMITTED));
+        assertThat(retrievedTransaction.getEventCount(), is(3));
+    }
+
     @Test
     void shouldNotOverwriteTransactionIfItConsistsOfFewerEvents() {
         TransactionEntity transaction = aTransactionFixture()
@@ -0,0 +1,43 @@
+package uk.gov.pay.ledger.transaction.entity;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.transaction.state.TransactionState;
+import uk.gov.pay.ledger.util.fixture.TransactionFixture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static uk.gov.pay.ledger.util.fixture.TransactionFixture.aTransactionFixture;
+
+public class TransactionEntityTest {
+
+    private final TransactionFixture fixture = aTransactionFixture().withState(TransactionState.CREATED);
+
+    @Test
+    public void projectionFingerprintShouldNotDependOnOrderOfTransactionDetailsKeys() {
+        TransactionEntity transaction = fixture
+                .withTransactionDetails("{\"language\": \"en\", \"payment_details\": {\"card_type\": \"visa\", \"amount\": 100}}")
+                .toEntity();
+        TransactionEntity sameTransactionWithKeysReordered = fixture
+                .withTransactionDetails("{\"payment_details\": {\"amount\": 100, \"card_type\": \"visa\"}, \"language\": \"en\"}")
+                .toEntity();
+
+        assertThat(sameTransactionWithKeysReordered.getProjectionFingerprint(), is(transaction.getProjectionFingerprint()));
+    }
+
+    @Test
+    public void projectionFingerprintShouldChangeWithTransactionDetails() {
+        TransactionEntity transaction = fixture.withTransactionDetails("{\"language\": \"en\"}").toEntity();
+        TransactionEntity changedTransaction = fixture.withTransactionDetails("{\"language\": \"cy\"}").toEntity();
+
+        assertThat(changedTransaction.getProjectionFingerprint(), is(not(transaction.getProjectionFingerprint())));
+    }
+
+    @Test
+    public void projectionFingerprintShouldNotDependOnEventCount() {
+        TransactionEntity transaction = fixture.withEventCount(1).toEntity();
+        TransactionEntity sameTransactionFromMoreEvents = fixture.withEventCount(2).toEntity();
+
+        assertThat(sameTransactionFromMoreEvents.getProjectionFingerprint(), is(transaction.getProjectionFingerprint()));
+    }
+}
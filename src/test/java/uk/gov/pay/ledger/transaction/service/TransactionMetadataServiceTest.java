@@ -8,12 +8,13 @@ import uk.gov.pay.commons.model.Source;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.ResourceType;
 import uk.gov.pay.ledger.event.model.SalientEventType;
-import uk.gov.pay.ledger.metadatakey.dao.MetadataKeyDao;
+import uk.gov.pay.ledger.referencedata.ReferenceDataCache;
 import uk.gov.pay.ledger.transaction.dao.TransactionDao;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
 import uk.gov.pay.ledger.transactionmetadata.dao.TransactionMetadataDao;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -32,7 +33,7 @@ public class TransactionMetadataServiceTest {
     @Mock
     private TransactionMetadataDao mockTransactionMetadataDao;
     @Mock
-    private MetadataKeyDao mockMetadataKeyDao;
+    private ReferenceDataCache mockReferenceDataCache;
 
     private TransactionMetadataService service;
 
@@ -40,9 +41,11 @@ public class TransactionMetadataServiceTest {
     public void shouldInsertMetadata() {
         String externalId = "transaction-id";
         TransactionEntity transaction = aTransactionFixture().withState(TransactionState.CREATED).toEntity();
-        service = new TransactionMetadataService(mockMetadataKeyDao, mockTransactionMetadataDao, mockTransactionDao);
+        service = new TransactionMetadataService(mockReferenceDataCache, mockTransactionMetadataDao, mockTransactionDao);
 
         when(mockTransactionDao.findTransactionByExternalId(externalId)).thenReturn(Optional.of(transaction));
+        when(mockReferenceDataCache.getOrCreateMetadataKeyId("meta1")).thenReturn(1L);
+        when(mockReferenceDataCache.getOrCreateMetadataKeyId("meta2")).thenReturn(2L);
 
         Event paymentCreatedEvent = aQueuePaymentEventFixture()
                 .withResourceExternalId(externalId)
@@ -56,17 +59,15 @@ public class TransactionMetadataServiceTest {
 
         service.upsertMetadataFor(paymentCreatedEvent);
 
-        verify(mockMetadataKeyDao).insertIfNotExist("meta1");
-        verify(mockMetadataKeyDao).insertIfNotExist("meta2");
-        verify(mockTransactionMetadataDao).insertIfNotExist(transaction.getId(), "meta1");
-        verify(mockTransactionMetadataDao).insertIfNotExist(transaction.getId(), "meta2");
+        verify(mockTransactionMetadataDao).insertIfNotExist(transaction.getId(), 1L);
+        verify(mockTransactionMetadataDao).insertIfNotExist(transaction.getId(), 2L);
     }
 
     @Test
     public void shouldNotTryToInsertMetadata() {
         String externalId = "transaction-id";
         TransactionEntity transaction = aTransactionFixture().withState(TransactionState.STARTED).toEntity();
-        service = new TransactionMetadataService(mockMetadataKeyDao, mockTransactionMetadataDao, mockTransactionDao);
+        service = new TransactionMetadataService(mockReferenceDataCache, mockTransactionMetadataDao, mockTransactionDao);
 
         Event paymentCreatedEvent = aQueuePaymentEventFixture()
                 .withResourceExternalId(externalId)
@@ -78,7 +79,26 @@ public class TransactionMetadataServiceTest {
 
         service.upsertMetadataFor(paymentCreatedEvent);
 
-        verify(mockMetadataKeyDao, never()).insertIfNotExist(anyString());
-        verify(mockTransactionMetadataDao, never()).insertIfNotExist(anyLong(), anyString());
+        verify(mockReferenceDataCache, never()).getOrCreateMetadataKeyId(anyString());
+        verify(mockTransactionMetadataDao, never()).insertIfNotExist(anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldResolveMetadataKeysWithoutLookingUpTransaction() {
+        service = new TransactionMetadataService(mockReferenceDataCache, mockTransactionMetadataDao, mockTransactionDao);
+
+        Event paymentCreatedEvent = aQueuePaymentEventFixture()
+                .withEventType(SalientEventType.PAYMENT_CREATED.name())
+                .withResourceType(ResourceType.PAYMENT)
+                .withSource(Source.CARD_API)
+                .withMetadata("meta1", "data1")
+                .withDefaultEventDataForEventType(SalientEventType.PAYMENT_CREATED.name())
+                .toEntity();
+
+        service.resolveMetadataKeysFor(List.of(paymentCreatedEvent));
+
+        verify(mockReferenceDataCache).getOrCreateMetadataKeyId("meta1");
+        verify(mockTransactionDao, never()).findTransactionByExternalId(anyString());
+        verify(mockTransactionMetadataDao, never()).insertIfNotExist(anyLong(), anyLong());
     }
 }
@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.transaction.service;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.dropwizard.jackson.Jackson;
 import org.junit.jupiter.api.BeforeEach;
@@ -62,6 +63,7 @@ public class TransactionServiceTest {
     private String gatewayAccountId = "gateway_account_id";
     private TransactionSearchParams searchParams;
     private ObjectMapper objectMapper = new ObjectMapper();
+    private MetricRegistry metricRegistry;
 
     @BeforeEach
     public void setUp() {
@@ -69,8 +71,9 @@ public class TransactionServiceTest {
         TransactionEntityFactory transactionEntityFactory = new TransactionEntityFactory(objectMapper);
         TransactionFactory transactionFactory = new TransactionFactory(objectMapper);
         CsvTransactionFactory csvTransactionFactory = new CsvTransactionFactory(objectMapper);
+        metricRegistry = new MetricRegistry();
         transactionService = new TransactionService(mockTransactionDao, mockEventDao, transactionEntityFactory,
-                transactionFactory, csvTransactionFactory, objectMapper);
+                transactionFactory, csvTransactionFactory, objectMapper, metricRegistry);
         searchParams = new TransactionSearchParams();
         searchParams.setAccountIds(List.of(gatewayAccountId));
 
@@ -370,6 +373,20 @@ public class TransactionServiceTest {
         assertThat(mayBeTransactionView.get().getPaymentProvider(), is("sandbox"));
     }
 
+    @Test
+    public void upsertTransactions_shouldCountTransactionsThatWereNotWritten() {
+        TransactionEntity unchangedTransaction = aTransactionFixture().toEntity();
+        TransactionEntity changedTransaction = aTransactionFixture().toEntity();
+        List<TransactionEntity> transactions = List.of(unchangedTransaction, changedTransaction);
+        when(mockTransactionDao.upsert(unchangedTransaction)).thenReturn(false);
+        when(mockTransactionDao.upsertAll(transactions)).thenReturn(1);
+
+        transactionService.upsertTransaction(unchangedTransaction);
+        transactionService.upsertTransactions(transactions);
+
+        assertThat(metricRegistry.counter("transaction.upsert.skipped").getCount(), is(2L));
+    }
+
     private void assertTransactionEvent(Event event, TransactionEvent transactionEvent, Long amount, String state) {
         try {
             assertThat(transactionEvent.getState() == null ? null : transactionEvent.getState().getStatus(), is(state));
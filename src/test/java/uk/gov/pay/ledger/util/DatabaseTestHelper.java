@@ -34,6 +34,7 @@ public class DatabaseTestHelper {
     public void truncateAllData() {
         jdbi.withHandle(h -> h.createScript(
                 "TRUNCATE TABLE event CASCADE; " +
+                        "TRUNCATE TABLE resource_digest; " +
                         "TRUNCATE TABLE transaction CASCADE"
         ).execute());
     }